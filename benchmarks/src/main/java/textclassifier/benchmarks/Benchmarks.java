@@ -0,0 +1,29 @@
+package textclassifier.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Helpers shared by the benchmarks
+ */
+final class Benchmarks {
+    private static final PrintStream NOWHERE = new PrintStream(OutputStream.nullOutputStream());
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs the code with System.out discarded, the training
+     * prints its progress which would flood the benchmark output.
+     */
+    static <T> T quietly(Supplier<T> code) {
+        PrintStream out = System.out;
+        System.setOut(NOWHERE);
+        try {
+            return code.get();
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
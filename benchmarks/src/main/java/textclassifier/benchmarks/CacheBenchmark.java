@@ -0,0 +1,58 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import textclassifier.ClassificationCache;
+import textclassifier.Document;
+import textclassifier.Tokenizer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying the texts of the test set which were all seen
+ * before, with the classification cache and without it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+    @State(Scope.Benchmark)
+    public static class Cache {
+        ClassificationCache cache;
+        List<String> texts;
+
+        @Setup
+        public void setUp(TstCorpus corpus) {
+            Corpus c = corpus.corpus;
+            this.texts = c.texts.subList(c.texts.size() - c.testDocuments.size(), c.texts.size());
+            this.cache = new ClassificationCache(c.classifier, Tokenizer.getDefault(), c.vocabulary, this.texts.size());
+            for (String text : this.texts) {
+                this.cache.classify(text);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String next(Cache cache) {
+            if (this.next == cache.texts.size()) {
+                this.next = 0;
+            }
+            return cache.texts.get(this.next++);
+        }
+    }
+
+    @Benchmark
+    public String uncached(TstCorpus corpus, Cache cache, Cursor cursor) {
+        return corpus.corpus.classifier.classify(new Document(cursor.next(cache), null, corpus.corpus.vocabulary));
+    }
+
+    @Benchmark
+    public String cached(Cache cache, Cursor cursor) {
+        return cache.cache.classify(cursor.next(cache)).getLabel();
+    }
+}
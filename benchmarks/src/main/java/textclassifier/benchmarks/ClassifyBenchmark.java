@@ -0,0 +1,57 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import textclassifier.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying single documents of the test set, the
+ * documents are taken in turn. The vectorized benchmarks
+ * score them with the Vector API, see setVectorized.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ClassifyBenchmark {
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        Document next(Corpus corpus) {
+            if (this.next == corpus.testDocuments.size()) {
+                this.next = 0;
+            }
+            return corpus.testDocuments.get(this.next++);
+        }
+    }
+
+    /**
+     * Switches the classifier of the corpus to the Vector API, every
+     * benchmark runs in its own fork so the others aren't affected
+     */
+    @State(Scope.Benchmark)
+    public static class Vectorized {
+        @Setup(Level.Trial)
+        public void setUp(SyntheticCorpus corpus) {
+            corpus.corpus.classifier.setVectorized(true);
+        }
+    }
+
+    @Benchmark
+    public String synthetic(SyntheticCorpus corpus, Cursor cursor) {
+        return corpus.corpus.classifier.classify(cursor.next(corpus.corpus));
+    }
+
+    @Benchmark
+    public String syntheticVectorized(SyntheticCorpus corpus, Vectorized vectorized, Cursor cursor) {
+        return corpus.corpus.classifier.classify(cursor.next(corpus.corpus));
+    }
+
+    @Benchmark
+    public String tst(TstCorpus corpus, Cursor cursor) {
+        return corpus.corpus.classifier.classify(cursor.next(corpus.corpus));
+    }
+}
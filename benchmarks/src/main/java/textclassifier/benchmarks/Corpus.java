@@ -0,0 +1,138 @@
+package textclassifier.benchmarks;
+
+import textclassifier.BayesTextClassifier;
+import textclassifier.CorpusStatistics;
+import textclassifier.Document;
+import textclassifier.TermIndex;
+import textclassifier.Vocabulary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Texts and labels the benchmarks run on, either generated
+ * or read from data/tst.txt.
+ */
+final class Corpus {
+    private static final String[] STOPWORDS = {"the", "of", "and", "in", "with", "by"};
+
+    final List<String> texts;
+    final List<String> labels;
+
+    // filled by prepare
+    Vocabulary vocabulary;
+    ArrayList<Document> trainDocuments;
+    ArrayList<Document> testDocuments;
+    BayesTextClassifier classifier;
+
+    private Corpus(List<String> texts, List<String> labels) {
+        this.texts = texts;
+        this.labels = labels;
+    }
+
+    /**
+     * Creates the documents, the first 80% are transformed and
+     * the classifier is trained with them, the rest is for testing.
+     */
+    void prepare() {
+        this.vocabulary = new Vocabulary();
+        ArrayList<Document> documents = this.createDocuments(this.vocabulary);
+        int trainSize = documents.size() * 4 / 5;
+        this.trainDocuments = new ArrayList<>(documents.subList(0, trainSize));
+        this.testDocuments = new ArrayList<>(documents.subList(trainSize, documents.size()));
+        transform(this.trainDocuments);
+        this.classifier = Benchmarks.quietly(() -> new BayesTextClassifier(this.trainDocuments));
+    }
+
+    /**
+     * Builds the document frequencies and calculates the improved counts
+     * @param documents the training documents
+     * @return the corpus statistics of the documents
+     */
+    static CorpusStatistics transform(List<Document> documents) {
+        CorpusStatistics corpusStatistics = new CorpusStatistics(documents);
+        for (Document document : documents) {
+            document.calculateImprovedCounts(corpusStatistics);
+        }
+        return corpusStatistics;
+    }
+
+    /**
+     * Generates a corpus. The words are drawn log-uniformly from the
+     * vocabulary, so a few words are frequent and most are rare, and
+     * a part of the words of a document depends on its label. Some
+     * numbers and stop words are mixed in for the tokenizer.
+     *
+     * @param documents the number of documents
+     * @param vocabularySize the number of distinct words
+     * @param labelCount the number of labels
+     * @param documentLength the number of words per document
+     * @param seed the seed of the random numbers
+     * @return the corpus
+     */
+    static Corpus synthetic(int documents, int vocabularySize, int labelCount, int documentLength, long seed) {
+        Random random = new Random(seed);
+        List<String> texts = new ArrayList<>(documents);
+        List<String> labels = new ArrayList<>(documents);
+        StringBuilder text = new StringBuilder();
+        for (int j = 0; j < documents; j++) {
+            int label = random.nextInt(labelCount);
+            text.setLength(0);
+            for (int k = 0; k < documentLength; k++) {
+                if (k > 0) {
+                    text.append(' ');
+                }
+                double kind = random.nextDouble();
+                if (kind < 0.1) {
+                    text.append(STOPWORDS[random.nextInt(STOPWORDS.length)]);
+                } else if (kind < 0.12) {
+                    text.append(random.nextInt(10000));
+                } else {
+                    int word = (int) Math.pow(vocabularySize, random.nextDouble()) - 1;
+                    if (kind < 0.4) {
+                        // words typical for the label
+                        word = (word + label * (vocabularySize / labelCount)) % vocabularySize;
+                    }
+                    text.append('w').append(Integer.toString(word, 36));
+                }
+            }
+            texts.add(text.toString());
+            labels.add("L" + label);
+        }
+        return new Corpus(texts, labels);
+    }
+
+    /**
+     * Reads the texts of data/tst.txt, the labels are taken from
+     * data/tst_classification_final.txt.
+     *
+     * @param dataDirectory the directory containing the files
+     * @return the corpus
+     * @throws IOException if the files can't be read
+     */
+    static Corpus tst(String dataDirectory) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(dataDirectory, "tst.txt"), StandardCharsets.UTF_8);
+        List<String> labels = Files.readAllLines(Paths.get(dataDirectory, "tst_classification_final.txt"), StandardCharsets.UTF_8);
+        List<String> texts = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            texts.add(line.replace('"', ' ').trim());
+        }
+        return new Corpus(texts, new ArrayList<>(labels.subList(0, texts.size())));
+    }
+
+    /**
+     * Creates the documents of the corpus
+     * @param termIndex the index the word ids are taken from
+     * @return the documents
+     */
+    ArrayList<Document> createDocuments(TermIndex termIndex) {
+        ArrayList<Document> documents = new ArrayList<>(this.texts.size());
+        for (int j = 0; j < this.texts.size(); j++) {
+            documents.add(new Document(this.texts.get(j), this.labels.get(j), termIndex));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,36 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import textclassifier.Document;
+import textclassifier.HashedTermIndex;
+import textclassifier.Vocabulary;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating the documents: splitting the texts into words
+ * and counting the term ids, with an empty vocabulary or
+ * with the words hashed into 2^18 buckets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentBenchmark {
+    @Benchmark
+    public ArrayList<Document> synthetic(SyntheticCorpus corpus) {
+        return corpus.corpus.createDocuments(new Vocabulary());
+    }
+
+    @Benchmark
+    public ArrayList<Document> tst(TstCorpus corpus) {
+        return corpus.corpus.createDocuments(new Vocabulary());
+    }
+
+    @Benchmark
+    public ArrayList<Document> syntheticHashed(SyntheticCorpus corpus) {
+        return corpus.corpus.createDocuments(new HashedTermIndex(1 << 18));
+    }
+}
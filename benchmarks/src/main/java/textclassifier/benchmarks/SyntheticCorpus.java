@@ -0,0 +1,29 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A generated corpus, the size of it is set by the parameters
+ */
+@State(Scope.Benchmark)
+public class SyntheticCorpus {
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"10000", "100000"})
+    public int vocabularySize;
+
+    @Param({"2", "20", "200"})
+    public int labels;
+
+    @Param({"150"})
+    public int documentLength;
+
+    Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        this.corpus = Corpus.synthetic(this.documents, this.vocabularySize, this.labels, this.documentLength, 42);
+        this.corpus.prepare();
+    }
+}
@@ -0,0 +1,26 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import textclassifier.BayesTextClassifier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training the classifier with transformed documents
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainBenchmark {
+    @Benchmark
+    public BayesTextClassifier synthetic(SyntheticCorpus corpus) {
+        return Benchmarks.quietly(() -> new BayesTextClassifier(corpus.corpus.trainDocuments));
+    }
+
+    @Benchmark
+    public BayesTextClassifier tst(TstCorpus corpus) {
+        return Benchmarks.quietly(() -> new BayesTextClassifier(corpus.corpus.trainDocuments));
+    }
+}
@@ -0,0 +1,27 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import textclassifier.CorpusStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the document frequencies and calculating
+ * the improved counts of all training documents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+    @Benchmark
+    public CorpusStatistics synthetic(SyntheticCorpus corpus) {
+        return Corpus.transform(corpus.corpus.trainDocuments);
+    }
+
+    @Benchmark
+    public CorpusStatistics tst(TstCorpus corpus) {
+        return Corpus.transform(corpus.corpus.trainDocuments);
+    }
+}
@@ -0,0 +1,22 @@
+package textclassifier.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * The documents of data/tst.txt
+ */
+@State(Scope.Benchmark)
+public class TstCorpus {
+    @Param({"data"})
+    public String dataDirectory;
+
+    Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void read() throws IOException {
+        this.corpus = Corpus.tst(this.dataDirectory);
+        this.corpus.prepare();
+    }
+}
@@ -0,0 +1,1176 @@
+package textclassifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The Naive Bayes classifier was improved by implementing
+ * features from the paper "Tackling the Poor Assumptions
+ * of Naive Bayes Classifiers" authored by Rennie et. al.
+ *
+ * The following transformations were performed:
+ * - Term Frequency transform, see §4.1 Transforming Term Frequency
+ * - Inverse Document Frequency, see §4.2 Transforming by Document Frequency
+ * - Length Normalization, see §4.3 Transforming Based on Length
+ * - using Complement Naive Bayes, see §3.1 Skewed Data Bias
+ * - and weight normalization, see §3.2 Weight Magnitude Errors
+ *
+ * With these transformations, the accuracy was ~0.9, which is a improvement of ~0.1.
+ *
+ * We also experimented with removing numbers and small words
+ * and came up with a small improvement of ~.005
+ *
+ * The classifier keeps the sums of the improved counts per label
+ * (ClassStatistics), so new training documents can be added with
+ * update without training again from scratch. The weights are
+ * recomputed from the sums the next time a document is classified.
+ *
+ * With setMaxTermCount or setMaxModelSize the weights are pruned
+ * to the terms which discriminate most between the labels, see train.
+ * The frequent words are removed by setWordThreshold. Changing these
+ * settings only recomputes the weights from the statistics, see also
+ * TransformPipeline.
+ *
+ * With setVectorized the documents are scored with the Vector API,
+ * see VectorScorer. With setOffHeap the weights are computed straight
+ * into direct buffers outside of the heap, like the ones of a loaded
+ * classifier, and the statistics are released afterwards.
+ *
+ * A trained classifier can be saved with save and loaded with load,
+ * see ModelFile. The weights of a loaded classifier stay in the memory
+ * mapped file, it has no statistics and can't be updated.
+ *
+ * @author Dennis Meyer, Sebastian Brodehl
+ * machine learning summer term 2014
+ */
+public class BayesTextClassifier implements Classifier {
+    // maximal length of the weight array, some VMs reserve header words in an array
+    private static final int MAX_WEIGHTS = Integer.MAX_VALUE - 8;
+
+    // Stores the sums of the improved counts per label, the model is trained with,
+    // null if the classifier was loaded
+    private ClassStatistics statistics;
+    // The trained weights, replaced as a whole when documents are added
+    private volatile Weights weights;
+    // True if documents were added since the weights were computed
+    private volatile boolean dirty;
+    // Pool the weights are computed on, null for the calling thread
+    private ForkJoinPool pool;
+    // Score buffer for classify, one per thread
+    private ThreadLocal<double[]> scores;
+    // usage in % of words
+    private double wordThreshold = .1;
+    // Sums of the improved counts over all labels, kept until documents are added
+    private double[] globalTermTotals;
+    // Sum of globalTermTotals
+    private double globalTotal;
+    // maximal number of terms kept by pruning, 0 keeps all
+    private int maxTermCount = 0;
+    // maximal size of the weights in bytes, 0 for no limit
+    private long maxModelSize = 0;
+    // True if documents are scored by the VectorScorer
+    private volatile boolean vectorized = false;
+    // True if the weights are computed into direct buffers
+    private boolean offHeap = false;
+
+    /**
+     * The trained weights and the labels they belong to. They are
+     * replaced as a whole when the model changes, so results computed
+     * with the same Weights belong to the same model, see
+     * ClassificationCache.
+     */
+    static class Weights {
+        // Stores the weight for each (row,label) pair, term major:
+        // the weights of all labels for a term lie next to each other
+        final double[] weight; // [row * label.length + label]
+        // Same as weight outside of the heap for loaded or off-heap classifiers, null otherwise
+        final DirectWeights direct;
+        // Row of each term id in weight, -1 for pruned terms,
+        // null if the row is the term id
+        final int[] row;
+        // Number of term ids covered by the weights
+        final int termCount;
+        // Stores all existent labels, the index is used for weight
+        final String[] label;
+
+        Weights(double[] weight, DirectWeights direct, int[] row, int termCount, String[] label) {
+            this.weight = weight;
+            this.direct = direct;
+            this.row = row;
+            this.termCount = termCount;
+            this.label = label;
+        }
+
+        /**
+         * Allocates zeroed weights for the given number of rows,
+         * in direct buffers if offHeap is true
+         */
+        static Weights allocate(int rows, int[] row, int termCount, String[] label, boolean offHeap) {
+            if (offHeap) {
+                return new Weights(null, DirectWeights.allocate(rows, label.length), row, termCount, label);
+            }
+            return new Weights(new double[weightCount(rows, label.length)], null, row, termCount, label);
+        }
+
+        /**
+         * @return the number of rows
+         */
+        int rows() {
+            return this.weight != null ? this.weight.length / Math.max(1, this.label.length) : this.direct.getRows();
+        }
+
+        double get(int r, int c) {
+            return this.weight != null ? this.weight[r * this.label.length + c] : this.direct.get(r, c);
+        }
+
+        void set(int r, int c, double value) {
+            if (this.weight != null) {
+                this.weight[r * this.label.length + c] = value;
+            } else {
+                this.direct.set(r, c, value);
+            }
+        }
+    }
+
+    /**
+     * Constructs a new TWCNB with the given training documents
+     * @param trainingDocuments the documents the classifier will train with
+     */
+    public BayesTextClassifier(ArrayList<Document> trainingDocuments) {
+        this(new ClassStatistics(trainingDocuments));
+    }
+
+    /**
+     * Constructs a new TWCNB with the sums of the improved
+     * counts per label of the training documents
+     * @param statistics the statistics of the training documents
+     */
+    public BayesTextClassifier(ClassStatistics statistics) {
+        this(statistics, null);
+    }
+
+    /**
+     * Constructs a new TWCNB with the sums of the improved
+     * counts per label of the training documents. With a pool
+     * the steps run in parallel over the labels or term ids,
+     * the weights are the same as the sequential ones.
+     *
+     * The classifier keeps the statistics and adds the documents
+     * of update to them.
+     *
+     * @param statistics the statistics of the training documents
+     * @param pool the pool to run on, null for the calling thread
+     */
+    public BayesTextClassifier(ClassStatistics statistics, ForkJoinPool pool) {
+        this(statistics, pool, .1, 0);
+    }
+
+    /**
+     * Constructs a new TWCNB like the public constructor, with the
+     * given settings applied before the weights are computed, so
+     * they are computed only once
+     *
+     * @param statistics the statistics of the training documents,
+     *                   built with the transformations of the settings
+     * @param pool the pool to run on, null for the calling thread
+     * @param settings the word threshold, term count, model size and off-heap setting
+     * @throws IllegalArgumentException if the model size is too small for the weights of one term
+     */
+    public BayesTextClassifier(ClassStatistics statistics, ForkJoinPool pool, TrainingSettings settings) {
+        this(statistics, pool, settings.getWordThreshold(), settings.getMaxTermCount(), settings.getMaxModelSize(),
+                settings.isOffHeap());
+        if (!statistics.getTransform().equals(settings.getTransform())) {
+            throw new IllegalArgumentException("the statistics are built with " + statistics.getTransform()
+                    + ", the settings have " + settings.getTransform());
+        }
+    }
+
+    /**
+     * Constructs a new TWCNB like the public constructor, with the
+     * settings of setWordThreshold and setMaxTermCount applied
+     * before the weights are computed the first time
+     *
+     * @param statistics the statistics of the training documents
+     * @param pool the pool to run on, null for the calling thread
+     * @param wordThreshold see setWordThreshold
+     * @param maxTermCount see setMaxTermCount
+     */
+    BayesTextClassifier(ClassStatistics statistics, ForkJoinPool pool, double wordThreshold, int maxTermCount) {
+        this(statistics, pool, wordThreshold, maxTermCount, 0, false);
+    }
+
+    /**
+     * Constructs a new TWCNB like the public constructor, with the
+     * settings of setWordThreshold, setMaxTermCount, setMaxModelSize
+     * and setOffHeap applied before the weights are computed the
+     * first time
+     *
+     * @param statistics the statistics of the training documents
+     * @param pool the pool to run on, null for the calling thread
+     * @param wordThreshold see setWordThreshold
+     * @param maxTermCount see setMaxTermCount
+     * @param maxModelSize see setMaxModelSize
+     * @param offHeap see setOffHeap
+     */
+    BayesTextClassifier(ClassStatistics statistics, ForkJoinPool pool, double wordThreshold, int maxTermCount,
+                        long maxModelSize, boolean offHeap) {
+        this.statistics = statistics;
+        this.pool = pool;
+        this.wordThreshold = wordThreshold;
+        this.maxTermCount = maxTermCount;
+        this.maxModelSize = maxModelSize;
+        this.offHeap = offHeap;
+        this.scores = new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[0];
+            }
+        };
+        this.weights = this.train();
+        this.dirty = false;
+    }
+
+    /**
+     * Constructs a classifier with weights read from a model file
+     *
+     * @param label the labels
+     * @param termCount the number of term ids covered by the weights
+     * @param weight the weights, term major, in the mapping of the file
+     */
+    BayesTextClassifier(String[] label, int termCount, DirectWeights weight) {
+        this(new Weights(null, weight, null, termCount, label));
+    }
+
+    /**
+     * Constructs a classifier with computed weights and no statistics
+     */
+    private BayesTextClassifier(Weights weights) {
+        this.statistics = null;
+        this.pool = null;
+        this.scores = new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[0];
+            }
+        };
+        this.weights = weights;
+        this.dirty = false;
+    }
+
+    /**
+     * Saves the trained weights, see ModelFile
+     *
+     * @param filePath the file the model is written to
+     * @param termIndex the term index of the training documents
+     * @throws IOException if the file can't be written
+     */
+    public void save(String filePath, TermIndex termIndex) throws IOException {
+        Weights weights = this.getWeights();
+        ModelFile.save(filePath, weights.label, weights.termCount, weights.row, weights.weight, weights.direct, termIndex);
+    }
+
+    /**
+     * Loads a classifier saved with save. The file is memory mapped.
+     *
+     * @param filePath the file the model is read from
+     * @param termIndex an empty vocabulary the words of the model are added to,
+     *                  or a HashedTermIndex with the buckets of the model
+     * @return the classifier
+     * @throws IOException if the file can't be read or isn't a model file
+     */
+    public static BayesTextClassifier load(String filePath, TermIndex termIndex) throws IOException {
+        return ModelFile.load(filePath, termIndex);
+    }
+
+    /**
+     * Adds a new training document. Its improved counts are
+     * calculated with the document frequencies of all documents
+     * added so far, the weights are recomputed lazily.
+     *
+     * @param document the labeled document
+     */
+    public synchronized void update(Document document) {
+        this.checkUpdatable();
+        this.statistics.addAndTransform(document);
+        this.globalTermTotals = null;
+        this.dirty = true;
+    }
+
+    /**
+     * Adds new training documents, see update. The weights are
+     * recomputed lazily once for all of them.
+     *
+     * @param documents the labeled documents
+     */
+    public synchronized void updateAll(List<Document> documents) {
+        this.checkUpdatable();
+        this.statistics.addAllAndTransform(documents);
+        this.globalTermTotals = null;
+        this.dirty = true;
+    }
+
+    /**
+     * Recomputes the weights if documents were added since the last time.
+     * Classifying does this on its own, calling it just moves the work.
+     */
+    public synchronized void refresh() {
+        if (this.dirty) {
+            this.weights = this.train();
+            this.dirty = false;
+        }
+    }
+
+    /**
+     * Sets the threshold of the frequent words: the words whose sum of
+     * improved counts is above wordThreshold times the highest sum are
+     * removed. The weights are recomputed lazily.
+     *
+     * @param wordThreshold the share of the highest sum, 1 keeps all words
+     */
+    public synchronized void setWordThreshold(double wordThreshold) {
+        if (!(wordThreshold >= 0)) {
+            throw new IllegalArgumentException("wordThreshold must not be negative: " + wordThreshold);
+        }
+        this.checkUpdatable();
+        if (wordThreshold != this.wordThreshold) {
+            this.wordThreshold = wordThreshold;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * @return the threshold of the frequent words, see setWordThreshold
+     */
+    public double getWordThreshold() {
+        return this.wordThreshold;
+    }
+
+    /**
+     * Limits the number of terms the weights are kept for, see
+     * train. The weights are recomputed lazily.
+     *
+     * @param maxTermCount the maximal number of terms, 0 keeps all
+     */
+    public synchronized void setMaxTermCount(int maxTermCount) {
+        if (maxTermCount < 0) {
+            throw new IllegalArgumentException("maxTermCount must not be negative: " + maxTermCount);
+        }
+        this.checkUpdatable();
+        if (maxTermCount != this.maxTermCount) {
+            this.maxTermCount = maxTermCount;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Limits the size of the weights to the given number of bytes,
+     * 8 bytes per label for every kept term, see train. The weights
+     * are recomputed lazily.
+     *
+     * @param maxModelSize the maximal size in bytes, 0 for no limit
+     * @throws IllegalArgumentException if the size is too small for the weights of one term
+     */
+    public synchronized void setMaxModelSize(long maxModelSize) {
+        if (maxModelSize < 0) {
+            throw new IllegalArgumentException("maxModelSize must not be negative: " + maxModelSize);
+        }
+        this.checkUpdatable();
+        checkModelSize(maxModelSize, this.statistics.getLabelCount());
+        if (maxModelSize != this.maxModelSize) {
+            this.maxModelSize = maxModelSize;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Computes the weights into direct buffers instead of an array,
+     * so a large model doesn't fill the heap, see DirectWeights. They
+     * are read the same way as the weights of a loaded classifier,
+     * which are always outside of the heap. The weights are computed
+     * lazily, no array of all weights is allocated on the way.
+     *
+     * Once the weights are computed the statistics are released, as
+     * they are as large as the weights. Like a loaded classifier the
+     * classifier can't be updated or changed afterwards, a changed
+     * model has to be trained again from the documents.
+     *
+     * @param offHeap true to keep the weights outside of the heap
+     */
+    public synchronized void setOffHeap(boolean offHeap) {
+        if (offHeap == this.offHeap) {
+            return;
+        }
+        this.checkUpdatable();
+        this.offHeap = offHeap;
+        this.dirty = true;
+    }
+
+    /**
+     * Scores the documents with the Vector API, see VectorScorer.
+     * The labels and scores are the same as without it, with many
+     * labels they are computed faster.
+     *
+     * @param vectorized true to use the Vector API, false for the scalar loop
+     * @throws IllegalStateException if the JVM wasn't started with
+     *         --add-modules jdk.incubator.vector
+     */
+    public void setVectorized(boolean vectorized) {
+        if (vectorized && !isVectorAvailable()) {
+            throw new IllegalStateException("the Vector API needs --add-modules jdk.incubator.vector");
+        }
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * @return true if setVectorized(true) can be used
+     */
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    private void checkUpdatable() {
+        if (this.statistics == null) {
+            throw new IllegalStateException("a loaded or off-heap classifier has no statistics and can't be updated");
+        }
+    }
+
+    /**
+     * @return the statistics the classifier is trained with, null if
+     *         it was loaded or its weights are kept off the heap
+     */
+    public ClassStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * @return the weights documents are classified with, recomputed
+     *         first if the classifier was changed
+     */
+    Weights getWeights() {
+        if (this.dirty) {
+            this.refresh();
+        }
+        return this.weights;
+    }
+
+    /**
+     * Computes the weights from the statistics, Steps 4-6 of Rennie et. al.,
+     * followed by the pruning to maxTermCount and maxModelSize. The sums
+     * over all labels are only computed again if documents were added.
+     * The weights are written straight into the matrix which is kept.
+     * If maxTermCount or maxModelSize don't allow a row for every term
+     * id, only the rows of the kept terms are allocated, also when all
+     * words are kept, so the budget holds for the whole matrix.
+     */
+    private Weights train() {
+        final ClassStatistics statistics = this.statistics;
+        ForkJoinPool pool = this.pool;
+        final String[] label = statistics.getLabels();
+        final int termCount = statistics.getTermCount();
+        final int labelCount = label.length;
+        final boolean[] words = new boolean[termCount];
+        if (this.globalTermTotals == null) {
+            this.globalTermTotals = statistics.getGlobalTermTotals(pool);
+            this.globalTotal = statistics.getGlobalTotal();
+        }
+        final double[] wordsWithCounts = this.globalTermTotals;
+
+        long start = Metrics.start();
+        int wordCount = selectWords(statistics.getCorpusStatistics(), wordsWithCounts, this.wordThreshold, words);
+        Metrics.stop(Metrics.Timer.FREQUENT_WORDS, start);
+
+        start = Metrics.start();
+        /**
+         * Step 4 of Rennie et. al. (page 7)
+         * Computes theta, see § 3.1 Skewed Data Bias
+         * The sums over all documents j with Yj != c are
+         * the global sums minus the sums of label c.
+         */
+        final Theta theta = new Theta(statistics, wordsWithCounts, this.globalTotal, wordCount, pool);
+        Metrics.stop(Metrics.Timer.STEP_4, start);
+
+        final int kept = this.getKeptTermCount(labelCount);
+        // if the rows of all term ids fit, the logs are stored in the kept matrix right away,
+        // otherwise only the rows of the kept terms are allocated, even if all words are kept
+        final Weights weights = kept >= termCount ? Weights.allocate(termCount, null, termCount, label, this.offHeap) : null;
+        final double[] sumOfWeights = new double[labelCount];
+        start = Metrics.start();
+        /**
+         * Step 5 of Rennie et. al.
+         * computes log of the weights
+         * and also saves the sum of the logs for step 6
+         */
+        ParallelLoop.forRange(pool, 0, labelCount, 1, new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int c = from; c < to; c++) {
+                    double sum = 0;
+                    for (int i = 0; i < termCount; i++) {
+                        if (!words[i]) {
+                            continue;
+                        }
+                        double log = Math.log(theta.get(c, i));
+                        if (weights != null) {
+                            weights.set(i, c, log);
+                        }
+                        sum += log;
+                    }
+                    sumOfWeights[c] = sum;
+                }
+            }
+        });
+
+        Metrics.stop(Metrics.Timer.STEP_5, start);
+
+        Weights result;
+        if (weights != null) {
+            start = Metrics.start();
+            normalize(weights, sumOfWeights, pool);
+            Metrics.stop(Metrics.Timer.STEP_6, start);
+            result = weights;
+        } else {
+            start = Metrics.start();
+            result = prune(theta, sumOfWeights, words, wordCount, termCount, label, kept, this.offHeap, pool);
+            Metrics.stop(Metrics.Timer.PRUNING, start);
+        }
+        setModelMetrics(result, wordCount);
+        if (this.offHeap) {
+            // the statistics are as large as the weights, see setOffHeap
+            this.statistics = null;
+            this.globalTermTotals = null;
+        }
+        return result;
+    }
+
+    /**
+     * The sums of the improved counts per term and label of training
+     * documents whose statistics don't fit into the heap, read term by
+     * term, see trainByTerm and OutOfCoreTrainer
+     */
+    interface TermTotals {
+        /**
+         * Passes the sums of every term in the order of the term ids,
+         * terms without sums may be left out. Every call reads all sums.
+         *
+         * @param consumer receives the sums of the terms
+         * @throws IOException if the sums can't be read
+         */
+        void forEach(TermConsumer consumer) throws IOException;
+    }
+
+    /**
+     * Receives the sums of a term, see TermTotals
+     */
+    interface TermConsumer {
+        /**
+         * @param termId the id of the term
+         * @param totals the sums of the term indexed by label, reused for the next term
+         */
+        void accept(int termId, double[] totals);
+    }
+
+    /**
+     * Computes the weights like the statistics with the same sums, from
+     * sums which are read term by term. Only arrays over the term ids and
+     * the weights which are kept are allocated, no [label][term id]
+     * matrix of the sums. The sums are read twice, three times with
+     * pruning. The classifier has no statistics, like a loaded one it
+     * can't be updated.
+     *
+     * @param label the labels, indexed like the sums
+     * @param corpusStatistics the document frequencies of the terms
+     * @param termCount the number of term ids, highest term id + 1
+     * @param totals the sums of the improved counts, built with the transformations of the settings
+     * @param settings the word threshold, term count and off-heap setting
+     * @param pool the pool the normalization runs on, null for the calling thread
+     * @return the classifier
+     * @throws IOException if the sums can't be read
+     */
+    static BayesTextClassifier trainByTerm(String[] label, CorpusStatistics corpusStatistics, int termCount,
+                                           TermTotals totals, TrainingSettings settings, ForkJoinPool pool) throws IOException {
+        final int labelCount = label.length;
+        long start = Metrics.start();
+        // the sums over all labels and over all terms, in the order of the statistics
+        final double[] wordsWithCounts = new double[termCount];
+        final double[] labelTotals = new double[labelCount];
+        forEachTerm(totals, termCount, labelCount, new TermConsumer() {
+            @Override
+            public void accept(int i, double[] termTotals) {
+                for (int c = 0; c < labelCount; c++) {
+                    wordsWithCounts[i] += termTotals[c];
+                    labelTotals[c] += termTotals[c];
+                }
+            }
+        });
+        double globalTotal = 0;
+        for (int c = 0; c < labelCount; c++) {
+            globalTotal += labelTotals[c];
+        }
+        Metrics.stop(Metrics.Timer.STEP_4, start);
+
+        start = Metrics.start();
+        final boolean[] words = new boolean[termCount];
+        int wordCount = selectWords(corpusStatistics, wordsWithCounts, settings.getWordThreshold(), words);
+        Metrics.stop(Metrics.Timer.FREQUENT_WORDS, start);
+
+        // Step 4, see Theta
+        final double[] denumerators = new double[labelCount];
+        for (int c = 0; c < labelCount; c++) {
+            denumerators[c] = Theta.denumerator(globalTotal, labelTotals[c], wordCount * Theta.alphai);
+        }
+
+        int kept = getKeptTermCount(settings.getMaxTermCount(), settings.getMaxModelSize(), labelCount);
+        final Weights weights = kept >= termCount ? Weights.allocate(termCount, null, termCount, label, settings.isOffHeap()) : null;
+        final double[] sumOfWeights = new double[labelCount];
+        start = Metrics.start();
+        // Step 5, the logs are summed up per label in term id order like in train
+        forEachTerm(totals, termCount, labelCount, new TermConsumer() {
+            @Override
+            public void accept(int i, double[] termTotals) {
+                if (!words[i]) {
+                    return;
+                }
+                for (int c = 0; c < labelCount; c++) {
+                    double log = Math.log(Theta.theta(wordsWithCounts[i], termTotals[c], denumerators[c]));
+                    if (weights != null) {
+                        weights.set(i, c, log);
+                    }
+                    sumOfWeights[c] += log;
+                }
+            }
+        });
+        Metrics.stop(Metrics.Timer.STEP_5, start);
+
+        Weights result;
+        if (weights != null) {
+            start = Metrics.start();
+            normalize(weights, sumOfWeights, pool);
+            Metrics.stop(Metrics.Timer.STEP_6, start);
+            result = weights;
+        } else {
+            start = Metrics.start();
+            // pruning like prune, one pass for the spreads and one for the kept rows
+            final double[] spread = new double[termCount];
+            forEachTerm(totals, termCount, labelCount, new TermConsumer() {
+                @Override
+                public void accept(int i, double[] termTotals) {
+                    if (!words[i]) {
+                        return;
+                    }
+                    double min = Double.POSITIVE_INFINITY;
+                    double max = Double.NEGATIVE_INFINITY;
+                    for (int c = 0; c < labelCount; c++) {
+                        double weight = Math.log(Theta.theta(wordsWithCounts[i], termTotals[c], denumerators[c])) / sumOfWeights[c];
+                        min = Math.min(min, weight);
+                        max = Math.max(max, weight);
+                    }
+                    spread[i] = max - min;
+                }
+            });
+            final int[] row = new int[termCount];
+            int rows = selectRows(spread, words, wordCount, kept, row);
+            final Weights pruned = Weights.allocate(rows, row, termCount, label, settings.isOffHeap());
+            forEachTerm(totals, termCount, labelCount, new TermConsumer() {
+                @Override
+                public void accept(int i, double[] termTotals) {
+                    if (row[i] < 0) {
+                        return;
+                    }
+                    for (int c = 0; c < labelCount; c++) {
+                        pruned.set(row[i], c, Math.log(Theta.theta(wordsWithCounts[i], termTotals[c], denumerators[c])) / sumOfWeights[c]);
+                    }
+                }
+            });
+            Metrics.stop(Metrics.Timer.PRUNING, start);
+            result = pruned;
+        }
+        setModelMetrics(result, wordCount);
+
+        BayesTextClassifier classifier = new BayesTextClassifier(result);
+        classifier.wordThreshold = settings.getWordThreshold();
+        classifier.maxTermCount = settings.getMaxTermCount();
+        classifier.maxModelSize = settings.getMaxModelSize();
+        classifier.offHeap = settings.isOffHeap();
+        return classifier;
+    }
+
+    /**
+     * Passes the sums of every term id below termCount in order, the
+     * terms left out by the totals with zero sums
+     */
+    private static void forEachTerm(TermTotals totals, int termCount, int labelCount, final TermConsumer consumer)
+            throws IOException {
+        final double[] zeros = new double[labelCount];
+        final int[] next = new int[1];
+        totals.forEach(new TermConsumer() {
+            @Override
+            public void accept(int termId, double[] termTotals) {
+                for (; next[0] < termId; next[0]++) {
+                    consumer.accept(next[0], zeros);
+                }
+                consumer.accept(termId, termTotals);
+                next[0] = termId + 1;
+            }
+        });
+        for (; next[0] < termCount; next[0]++) {
+            consumer.accept(next[0], zeros);
+        }
+    }
+
+    /**
+     * Marks the words, the terms of the documents, and removes the
+     * frequent ones: all words with a count above wordThreshold times
+     * the maximum count
+     *
+     * @param corpusStatistics the document frequencies of the terms
+     * @param wordsWithCounts the sums of the improved counts over all labels
+     * @param wordThreshold see setWordThreshold
+     * @param words receives true for the words which are kept
+     * @return the number of kept words
+     */
+    private static int selectWords(CorpusStatistics corpusStatistics, double[] wordsWithCounts, double wordThreshold,
+                                   boolean[] words) {
+        int termCount = words.length;
+        int wordCount = 0;
+        for (int i = 0; i < termCount; i++) {
+            if (corpusStatistics.getDocumentFrequency(i) > 0) {
+                words[i] = true;
+                wordCount++;
+            }
+        }
+
+        // removes all words with a count above wordThreshold * maximum count
+        int prevWordSize = wordCount;
+        double maxValue = 0.;
+        for (int i = 0; i < termCount; i++) {
+            if (words[i] && wordsWithCounts[i] > maxValue) {
+                maxValue = wordsWithCounts[i];
+            }
+        }
+        double threshold = maxValue * wordThreshold;
+        for (int i = 0; i < termCount; i++) {
+            if (words[i] && wordsWithCounts[i] > threshold) {
+                words[i] = false;
+                wordCount--;
+            }
+        }
+
+        Metrics.set(Metrics.Gauge.TERM_COUNT, termCount);
+        Metrics.set(Metrics.Gauge.REMOVED_WORDS, prevWordSize - wordCount);
+        return wordCount;
+    }
+
+    /**
+     * Step 6 of Rennie et. al.
+     * weight normalization $ 3.2 Weight Magnitude Errors
+     */
+    private static void normalize(final Weights weights, final double[] sumOfWeights, ForkJoinPool pool) {
+        final int termCount = weights.rows();
+        final int labelCount = sumOfWeights.length;
+        ParallelLoop.forRange(pool, 0, termCount, Math.max(1024, ParallelLoop.grain(pool, termCount)), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    for (int c = 0; c < labelCount; c++) {
+                        weights.set(i, c, weights.get(i, c) / sumOfWeights[c]);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void setModelMetrics(Weights weights, int wordCount) {
+        Metrics.set(Metrics.Gauge.MODEL_TERMS, weights.row == null ? wordCount : weights.rows());
+        Metrics.set(Metrics.Gauge.MODEL_BYTES, 8L * weights.rows() * weights.label.length);
+    }
+
+    /**
+     * theta of Step 4 of Rennie et. al. for a label and a term. Only
+     * the denumerators of the labels are stored, theta is computed
+     * from the sums of the statistics where it is needed, so there
+     * is no matrix of all thetas next to the weights.
+     */
+    private static class Theta {
+        // smoothing factors alpha
+        static final int alphai = 1;
+
+        final double[][] termTotals; // [label][term id]
+        final double[] wordsWithCounts;
+        final double[] denumerators;
+
+        Theta(final ClassStatistics statistics, double[] wordsWithCounts, final double globalTotal, int wordCount, ForkJoinPool pool) {
+            final int labelCount = statistics.getLabelCount();
+            final double[][] termTotals = new double[labelCount][];
+            final double[] denumerators = new double[labelCount];
+            final int sumOfAlphas = wordCount * alphai;
+            // over all c
+            ParallelLoop.forRange(pool, 0, labelCount, 1, new ParallelLoop.Body() {
+                @Override
+                public void run(int from, int to) {
+                    for (int c = from; c < to; c++) {
+                        termTotals[c] = statistics.getTermTotals(c);
+
+                        denumerators[c] = denumerator(globalTotal, statistics.getTotal(c), sumOfAlphas);
+                    }
+                }
+            });
+            this.termTotals = termTotals;
+            this.wordsWithCounts = wordsWithCounts;
+            this.denumerators = denumerators;
+        }
+
+        double get(int c, int i) {
+            return theta(this.wordsWithCounts[i], this.termTotals[c][i], this.denumerators[c]);
+        }
+
+        static double denumerator(double globalTotal, double total, int sumOfAlphas) {
+            // sum up word counts over all j with Yj != c
+            double denumerator = globalTotal - total;
+            // add smoothing factor
+            denumerator += sumOfAlphas;
+            return denumerator;
+        }
+
+        static double theta(double wordsWithCount, double termTotal, double denumerator) {
+            // sum up word counts over all j with Yj != c and add smooting factor
+            double numerator = wordsWithCount - termTotal + alphai;
+            return 1.0*numerator / 1.0*denumerator;
+        }
+    }
+
+    /**
+     * Gets the number of weights of a matrix with the given number of
+     * rows, so the index products row * labelCount + c can't overflow
+     *
+     * @throws IllegalStateException if the weights don't fit into an array
+     */
+    static int weightCount(int rows, int labelCount) {
+        long count = (long) rows * labelCount;
+        if (count > MAX_WEIGHTS) {
+            throw new IllegalStateException("the weights of " + rows + " terms and " + labelCount
+                    + " labels don't fit into an array, use setOffHeap, less terms or hash buckets");
+        }
+        return (int) count;
+    }
+
+    /**
+     * @return the number of terms allowed by maxTermCount and maxModelSize
+     */
+    private int getKeptTermCount(int labelCount) {
+        return getKeptTermCount(this.maxTermCount, this.maxModelSize, labelCount);
+    }
+
+    private static int getKeptTermCount(int maxTermCount, long maxModelSize, int labelCount) {
+        long kept = maxTermCount > 0 ? maxTermCount : Integer.MAX_VALUE;
+        if (maxModelSize > 0 && labelCount > 0) {
+            // labels may have been added by update since setMaxModelSize
+            checkModelSize(maxModelSize, labelCount);
+            kept = Math.min(kept, maxModelSize / (8L * labelCount));
+        }
+        return (int) kept;
+    }
+
+    /**
+     * Rejects a model size which keeps no term, the classifier
+     * would label every document with the first label
+     */
+    private static void checkModelSize(long maxModelSize, int labelCount) {
+        if (maxModelSize > 0 && maxModelSize < 8L * labelCount) {
+            throw new IllegalArgumentException("maxModelSize of " + maxModelSize + " bytes keeps no term, the weights of one term take "
+                    + 8L * labelCount + " bytes");
+        }
+    }
+
+    /**
+     * Pruning, keeps the weights of the kept terms which discriminate
+     * most between the labels. A term discriminates more the larger the
+     * difference between its highest and lowest normalized weight is,
+     * terms with the same difference are kept in term id order.
+     * The kept terms are selected without sorting all of them, then
+     * only their weights are computed, Steps 5 and 6 with the sums
+     * of the logs, into a matrix of the kept rows.
+     */
+    private static Weights prune(final Theta theta, final double[] sumOfWeights, final boolean[] words, int wordCount,
+                                 int termCount, String[] label, int kept, boolean offHeap, ForkJoinPool pool) {
+        final int labelCount = label.length;
+        final double[] spread = new double[termCount];
+        ParallelLoop.forRange(pool, 0, termCount, Math.max(1024, ParallelLoop.grain(pool, termCount)), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (!words[i]) {
+                        continue;
+                    }
+                    double min = Double.POSITIVE_INFINITY;
+                    double max = Double.NEGATIVE_INFINITY;
+                    for (int c = 0; c < labelCount; c++) {
+                        double weight = Math.log(theta.get(c, i)) / sumOfWeights[c];
+                        min = Math.min(min, weight);
+                        max = Math.max(max, weight);
+                    }
+                    spread[i] = max - min;
+                }
+            }
+        });
+
+        final int[] row = new int[termCount];
+        int rows = selectRows(spread, words, wordCount, kept, row);
+        final Weights weights = Weights.allocate(rows, row, termCount, label, offHeap);
+        ParallelLoop.forRange(pool, 0, termCount, Math.max(1024, ParallelLoop.grain(pool, termCount)), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (row[i] < 0) {
+                        continue;
+                    }
+                    for (int c = 0; c < labelCount; c++) {
+                        weights.set(row[i], c, Math.log(theta.get(c, i)) / sumOfWeights[c]);
+                    }
+                }
+            }
+        });
+        return weights;
+    }
+
+    /**
+     * Selects the kept terms of prune: the kept words with the largest
+     * spread, words with the same spread in term id order. All words
+     * are kept if there are no more than kept.
+     *
+     * @param spread the spread of the weights of every word
+     * @param words true for the words
+     * @param wordCount the number of words
+     * @param kept the number of kept terms
+     * @param row receives the row of every kept term, -1 for the others
+     * @return the number of rows
+     */
+    private static int selectRows(double[] spread, boolean[] words, int wordCount, int kept, int[] row) {
+        int termCount = row.length;
+        double threshold = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        if (kept < wordCount) {
+            double[] candidates = new double[wordCount];
+            for (int i = 0, n = 0; i < termCount; i++) {
+                if (words[i]) {
+                    candidates[n++] = spread[i];
+                }
+            }
+            threshold = select(candidates, kept);
+            ties = kept;
+            for (int i = 0; i < termCount; i++) {
+                if (words[i] && spread[i] > threshold) {
+                    ties--;
+                }
+            }
+        }
+
+        int rows = 0;
+        for (int i = 0; i < termCount; i++) {
+            row[i] = -1;
+            if (words[i] && (spread[i] > threshold || spread[i] == threshold && ties-- > 0)) {
+                row[i] = rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the k-th largest value, k starting with 1, by
+     * quickselect. The values are reordered.
+     */
+    private static double select(double[] values, int k) {
+        int target = k - 1;
+        int left = 0;
+        int right = values.length - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] > pivot) {
+                    i++;
+                }
+                while (values[j] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[target];
+    }
+
+    /**
+     * @return all labels, the index of a label is the one used by score
+     */
+    public String[] getLabels() {
+        return this.getWeights().label.clone();
+    }
+
+    /**
+     * This method performs the labeling of an unclassified
+     * document according to Step 8 of Rennie et. al. (page 7)
+     *
+     * @param document the document which will be classified
+     * @return the label of the document
+     */
+    @Override
+    public String classify(Document document) {
+        long start = Metrics.start();
+        Weights weights = this.getWeights();
+        int c = score(weights, document, this.getScoreBuffer(weights));
+        Metrics.stop(Metrics.Timer.CLASSIFY, start);
+        Metrics.count(Metrics.Counter.DOCUMENTS_CLASSIFIED, 1);
+        return c < 0 ? "" : weights.label[c];
+    }
+
+    /**
+     * Classifies all documents, see classify. With a pool the
+     * documents are splitted into parts which are classified in
+     * parallel, every thread reuses its own score buffer.
+     *
+     * @param documents the documents which will be classified
+     * @param pool the pool to run on, null for the calling thread
+     * @return the labels of the documents in the order of the documents
+     */
+    @Override
+    public String[] classifyAll(List<Document> documents, ForkJoinPool pool) {
+        Weights weights = this.getWeights();
+        int[] labels = this.scoreAll(weights, documents, null, pool);
+        String[] result = new String[labels.length];
+        for (int j = 0; j < labels.length; j++) {
+            result[j] = labels[j] < 0 ? "" : weights.label[labels[j]];
+        }
+        return result;
+    }
+
+    /**
+     * Scores all documents, see score. With a pool the documents
+     * are splitted into parts which are scored in parallel.
+     *
+     * @param documents the documents which will be scored
+     * @param scores receives the sums of document j for label c at
+     *               j * number of labels + c, may be null
+     * @param pool the pool to run on, null for the calling thread
+     * @return the index of the label with the minimal sum for each document
+     */
+    public int[] scoreAll(List<Document> documents, double[] scores, ForkJoinPool pool) {
+        return this.scoreAll(this.getWeights(), documents, scores, pool);
+    }
+
+    /**
+     * Scores all documents like scoreAll with the given weights of getWeights
+     */
+    int[] scoreAll(final Weights weights, final List<Document> documents, final double[] scores, ForkJoinPool pool) {
+        long start = Metrics.start();
+        final int[] labels = new int[documents.size()];
+        final int labelCount = weights.label.length;
+        if (scores != null && scores.length < (long) documents.size() * labelCount) {
+            throw new IllegalArgumentException("scores has room for " + scores.length + " sums, "
+                    + documents.size() + " documents and " + labelCount + " labels need more");
+        }
+        // documents are cheap to score, don't split below 64 of them
+        ParallelLoop.forRange(pool, 0, documents.size(), Math.max(64, ParallelLoop.grain(pool, documents.size())), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                double[] buffer = getScoreBuffer(weights);
+                for (int j = from; j < to; j++) {
+                    labels[j] = score(weights, documents.get(j), buffer);
+                    if (scores != null) {
+                        System.arraycopy(buffer, 0, scores, j * labelCount, labelCount);
+                    }
+                }
+            }
+        });
+        Metrics.stop(Metrics.Timer.CLASSIFY_BATCH, start);
+        Metrics.count(Metrics.Counter.DOCUMENTS_CLASSIFIED, documents.size());
+        return labels;
+    }
+
+    /**
+     * Sums up the weights of the words in the document for every
+     * label and gets the arg min of the classes, see Step 8 of
+     * Rennie et. al. Nothing is allocated, so the scores buffer
+     * can be reused for all documents.
+     *
+     * @param document the document which will be scored
+     * @param scores receives the sum for each label, length must be at least the number of labels
+     * @return the index of the label with the minimal sum, -1 if there are no labels
+     */
+    public int score(Document document, double[] scores) {
+        return score(this.getWeights(), document, scores);
+    }
+
+    private double[] getScoreBuffer(Weights weights) {
+        double[] buffer = this.scores.get();
+        if (buffer.length < weights.label.length) {
+            buffer = new double[weights.label.length];
+            this.scores.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Scores a document like score with the given weights of getWeights
+     */
+    int score(Weights weights, Document document, double[] scores) {
+        int labelCount = weights.label.length;
+        double[] weight = weights.weight;
+        DirectWeights direct = weights.direct;
+        int[] row = weights.row;
+        int[] termIds = document.getTermIds();
+        int[] counts = document.getCounts();
+        if (this.vectorized) {
+            return VectorScorer.score(weight, direct, row, weights.termCount, labelCount, termIds, counts, scores);
+        }
+        Arrays.fill(scores, 0, labelCount, 0.);
+        // sums up all weights of the words in the document,
+        // the weights of all labels for a word are read at once
+        for (int k = 0; k < termIds.length; k++) {
+            if (termIds[k] >= weights.termCount) {
+                continue;
+            }
+            int r = row == null ? termIds[k] : row[termIds[k]];
+            if (r < 0) {
+                continue;
+            }
+            int count = counts[k];
+            if (weight != null) {
+                int offset = r * labelCount;
+                for (int c = 0; c < labelCount; c++) {
+                    scores[c] += count * weight[offset + c];
+                }
+            } else {
+                ByteBuffer segment = direct.segment(r);
+                int position = direct.position(r);
+                for (int c = 0; c < labelCount; c++) {
+                    scores[c] += count * segment.getDouble(position + (c << 3));
+                }
+            }
+        }
+        // gets the arg min of the classes
+        int label = -1;
+        double minimum = Double.MAX_VALUE;
+        for (int c = 0; c < labelCount; c++) {
+            if (scores[c] < minimum) {
+                minimum = scores[c];
+                label = c;
+            }
+        }
+        return label;
+    }
+}
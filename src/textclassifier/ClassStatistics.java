@@ -0,0 +1,372 @@
+package textclassifier;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Collects the sufficient statistics the classifier is trained
+ * with: for each label the sum of the improved counts of every
+ * word over the documents of that label, see Step 4 of Rennie et. al.
+ *
+ * The statistics are built in one pass over the documents. The
+ * complement counts of a label (the sums over all documents of
+ * the other labels) are the global sums minus the sums of the label.
+ *
+ * The document frequencies and the number of documents are kept
+ * as CorpusStatistics, so new documents can be transformed with
+ * them and added later on, see addAndTransform. The new documents
+ * are transformed with the Transform the statistics were built with.
+ *
+ * Every sum is added up in the order of the documents, also
+ * when the documents are added in parallel, so the result is
+ * always the same as the sequential one.
+ */
+public class ClassStatistics {
+    // Stores for each label its index
+    private Map<String, Integer> labelIndex;
+    // Stores all labels in the order of their index
+    private ArrayList<String> labels;
+    // Stores for each (label,term id) pair the sum of the improved counts
+    private double[][] termTotals; // [label][term id]
+    // Stores for each label the number of documents
+    private int[] documentCounts;
+    // Document frequencies and number of documents
+    private CorpusStatistics corpusStatistics;
+    // Number of term ids covered, highest term id + 1
+    private int termCount;
+    // Length of the arrays in termTotals
+    private int capacity;
+    // Transformations of the improved counts of the documents
+    private Transform transform;
+
+    public ClassStatistics() {
+        this(Transform.DEFAULT);
+    }
+
+    /**
+     * Creates empty statistics for documents whose
+     * improved counts are calculated with the given
+     * transformations
+     *
+     * @param transform the transformations of the improved counts
+     */
+    public ClassStatistics(Transform transform) {
+        this.labelIndex = new HashMap<>();
+        this.labels = new ArrayList<>();
+        this.termTotals = new double[0][];
+        this.documentCounts = new int[0];
+        this.corpusStatistics = new CorpusStatistics();
+        this.termCount = 0;
+        this.capacity = 1024;
+        this.transform = transform;
+    }
+
+    /**
+     * Builds the statistics for the given documents.
+     * The improved counts of the documents must be calculated.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     */
+    public ClassStatistics(List<Document> trainingDocuments) {
+        this();
+        this.addAll(trainingDocuments, null);
+    }
+
+    /**
+     * Adds the improved counts of a document to the sums of its label
+     * @param document the document which will be added
+     */
+    public void add(Document document) {
+        this.corpusStatistics.add(document);
+        this.addImprovedCounts(document);
+    }
+
+    /**
+     * Adds a new document whose improved counts aren't calculated yet.
+     * The document is counted for the document frequencies first,
+     * then its improved counts are calculated with the current
+     * statistics and added to the sums of its label.
+     *
+     * @param document the document which will be added
+     */
+    public void addAndTransform(Document document) {
+        this.corpusStatistics.add(document);
+        document.calculateImprovedCounts(this.corpusStatistics, this.transform);
+        this.addImprovedCounts(document);
+    }
+
+    /**
+     * Adds new documents whose improved counts aren't calculated yet.
+     * All documents are counted for the document frequencies first,
+     * so they are transformed with the same statistics.
+     *
+     * @param documents the documents which will be added
+     */
+    public void addAllAndTransform(List<Document> documents) {
+        for (Document document : documents) {
+            this.corpusStatistics.add(document);
+        }
+        for (Document document : documents) {
+            document.calculateImprovedCounts(this.corpusStatistics, this.transform);
+            this.addImprovedCounts(document);
+        }
+    }
+
+    private void addImprovedCounts(Document document) {
+        int c = this.getOrAddLabel(document.getLabel());
+        int[] termIds = document.getTermIds();
+        double[] improvedCounts = document.getImprovedCounts();
+        if (termIds.length > 0) {
+            this.ensureTermCount(termIds[termIds.length - 1] + 1);
+        }
+        double[] termTotals = this.termTotals[c];
+        for (int k = 0; k < termIds.length; k++) {
+            termTotals[termIds[k]] += improvedCounts[k];
+        }
+        this.documentCounts[c]++;
+    }
+
+    /**
+     * Adds the improved counts of all documents. With a pool the
+     * term ids are split into ranges which are summed up in parallel,
+     * every range goes over all documents in their order.
+     *
+     * @param documents the documents which will be added
+     * @param pool the pool to run on, null for the calling thread
+     */
+    public void addAll(final List<Document> documents, ForkJoinPool pool) {
+        long start = Metrics.start();
+        this.addAll(documents, new CorpusStatistics(documents, pool), pool);
+        Metrics.stop(Metrics.Timer.STATISTICS, start);
+    }
+
+    /**
+     * Adds the improved counts of all documents, see addAll, with
+     * their document frequencies which are already counted
+     *
+     * @param documents the documents which will be added
+     * @param corpusStatistics the statistics of exactly these documents
+     * @param pool the pool to run on, null for the calling thread
+     */
+    void addAll(final List<Document> documents, CorpusStatistics corpusStatistics, ForkJoinPool pool) {
+        this.corpusStatistics.merge(corpusStatistics);
+        final int[] documentLabels = new int[documents.size()];
+        int termCount = 0;
+        for (int j = 0; j < documents.size(); j++) {
+            Document document = documents.get(j);
+            documentLabels[j] = this.getOrAddLabel(document.getLabel());
+            this.documentCounts[documentLabels[j]]++;
+            int[] termIds = document.getTermIds();
+            if (termIds.length > 0) {
+                termCount = Math.max(termCount, termIds[termIds.length - 1] + 1);
+            }
+        }
+        this.ensureTermCount(termCount);
+
+        ParallelLoop.forRange(pool, 0, termCount, Math.max(1024, ParallelLoop.grain(pool, termCount)), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int j = 0; j < documents.size(); j++) {
+                    Document document = documents.get(j);
+                    int[] termIds = document.getTermIds();
+                    double[] improvedCounts = document.getImprovedCounts();
+                    double[] labelTotals = termTotals[documentLabels[j]];
+                    int k = from == 0 ? 0 : Arrays.binarySearch(termIds, from);
+                    if (k < 0) {
+                        k = -k - 1;
+                    }
+                    for (; k < termIds.length && termIds[k] < to; k++) {
+                        labelTotals[termIds[k]] += improvedCounts[k];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the statistics of the documents added here without the
+     * documents of part, which must have been added here too. This is
+     * how the model of a cross validation fold is derived from the
+     * statistics of all documents. The sums are these sums minus the
+     * ones of part, so they may differ in the last bits from adding up
+     * the remaining documents. Labels without remaining documents are
+     * left out. These statistics aren't changed.
+     *
+     * @param part the statistics of the documents which are left out
+     * @return the statistics of the remaining documents
+     */
+    public ClassStatistics subtract(ClassStatistics part) {
+        ClassStatistics result = new ClassStatistics(this.transform);
+        result.corpusStatistics.merge(this.corpusStatistics);
+        result.corpusStatistics.subtract(part.corpusStatistics);
+        result.ensureTermCount(this.termCount);
+        for (String label : part.labels) {
+            if (!this.labelIndex.containsKey(label)) {
+                throw new IllegalArgumentException("label " + label + " wasn't added to these statistics");
+            }
+        }
+        int partTermCount = Math.min(this.termCount, part.termCount);
+        for (int c = 0; c < this.labels.size(); c++) {
+            String label = this.labels.get(c);
+            Integer p = part.labelIndex.get(label);
+            int documentCount = this.documentCounts[c] - (p == null ? 0 : part.documentCounts[p]);
+            if (documentCount == 0) {
+                continue;
+            }
+            int r = result.getOrAddLabel(label);
+            double[] totals = result.termTotals[r];
+            System.arraycopy(this.termTotals[c], 0, totals, 0, this.termCount);
+            if (p != null) {
+                double[] partTotals = part.termTotals[p];
+                for (int i = 0; i < partTermCount; i++) {
+                    totals[i] -= partTotals[i];
+                }
+            }
+            result.documentCounts[r] = documentCount;
+        }
+        return result;
+    }
+
+    private int getOrAddLabel(String label) {
+        Integer c = this.labelIndex.get(label);
+        if (c != null) {
+            return c;
+        }
+        c = this.labels.size();
+        this.labelIndex.put(label, c);
+        this.labels.add(label);
+        this.termTotals = Arrays.copyOf(this.termTotals, c + 1);
+        this.termTotals[c] = new double[this.capacity];
+        this.documentCounts = Arrays.copyOf(this.documentCounts, c + 1);
+        return c;
+    }
+
+    private void ensureTermCount(int termCount) {
+        if (termCount > this.capacity) {
+            this.capacity = Math.max(this.capacity * 2, termCount);
+            for (int c = 0; c < this.termTotals.length; c++) {
+                this.termTotals[c] = Arrays.copyOf(this.termTotals[c], this.capacity);
+            }
+        }
+        this.termCount = Math.max(this.termCount, termCount);
+    }
+
+    /**
+     * @return all labels in the order of their index
+     */
+    public String[] getLabels() {
+        return this.labels.toArray(new String[this.labels.size()]);
+    }
+
+    /**
+     * @return the transformations of the improved counts
+     */
+    public Transform getTransform() {
+        return this.transform;
+    }
+
+    /**
+     * @return the number of labels
+     */
+    public int getLabelCount() {
+        return this.labels.size();
+    }
+
+    /**
+     * @return the number of term ids covered, highest term id + 1
+     */
+    public int getTermCount() {
+        return this.termCount;
+    }
+
+    /**
+     * Gets the sums of the improved counts of all words for one label.
+     * The array may be longer than getTermCount() and must not be modified.
+     *
+     * @param c the index of the label
+     * @return the sums indexed by term id
+     */
+    public double[] getTermTotals(int c) {
+        return this.termTotals[c];
+    }
+
+    /**
+     * @param c the index of the label
+     * @return the sum of all improved counts of the label
+     */
+    public double getTotal(int c) {
+        double total = 0;
+        double[] termTotals = this.termTotals[c];
+        for (int i = 0; i < this.termCount; i++) {
+            total += termTotals[i];
+        }
+        return total;
+    }
+
+    /**
+     * @param c the index of the label
+     * @return the number of documents of the label
+     */
+    public int getDocumentCount(int c) {
+        return this.documentCounts[c];
+    }
+
+    /**
+     * @param termId the id of a word
+     * @return the number of documents containing the word
+     */
+    public int getDocumentFrequency(int termId) {
+        return this.corpusStatistics.getDocumentFrequency(termId);
+    }
+
+    /**
+     * @return the document frequencies and number of documents of all added documents
+     */
+    public CorpusStatistics getCorpusStatistics() {
+        return this.corpusStatistics;
+    }
+
+    /**
+     * Sums up the improved counts of every word over all labels.
+     * The labels are added in the order of their index.
+     *
+     * @return the global sums indexed by term id, length is getTermCount()
+     */
+    public double[] getGlobalTermTotals() {
+        return this.getGlobalTermTotals(null);
+    }
+
+    /**
+     * Sums up the improved counts of every word over all labels,
+     * the term ids are split into ranges which are summed up in parallel.
+     *
+     * @param pool the pool to run on, null for the calling thread
+     * @return the global sums indexed by term id, length is getTermCount()
+     */
+    public double[] getGlobalTermTotals(ForkJoinPool pool) {
+        final double[] globalTotals = new double[this.termCount];
+        ParallelLoop.forRange(pool, 0, this.termCount, Math.max(1024, ParallelLoop.grain(pool, this.termCount)), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int c = 0; c < termTotals.length; c++) {
+                    double[] labelTotals = termTotals[c];
+                    for (int i = from; i < to; i++) {
+                        globalTotals[i] += labelTotals[i];
+                    }
+                }
+            }
+        });
+        return globalTotals;
+    }
+
+    /**
+     * @return the sum of all improved counts over all labels
+     */
+    public double getGlobalTotal() {
+        double globalTotal = 0;
+        for (int c = 0; c < this.termTotals.length; c++) {
+            globalTotal += this.getTotal(c);
+        }
+        return globalTotal;
+    }
+}
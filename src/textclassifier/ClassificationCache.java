@@ -0,0 +1,229 @@
+package textclassifier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of classifications in front of a classifier,
+ * so texts seen before are neither tokenized nor scored again.
+ *
+ * The entries are keyed by a 64 bit hash of the normalized text: the
+ * parts between spaces are trimmed, empty parts are left out and the
+ * others are joined by one space, like the tokenizer splits the text.
+ * Two different texts only share an entry if their hashes collide,
+ * which is unlikely enough to be ignored.
+ *
+ * Words which aren't in the vocabulary of the classifier are only
+ * looked up and not added, see LookupOnlyIndex, so the vocabulary
+ * doesn't grow with the cached texts.
+ *
+ * When the cache is full the least recently used entry is removed.
+ * The cache can be used by many threads at once. The label and the
+ * scores of a result are computed with the same weights. The cached
+ * results belong to these weights: once the classifier is changed,
+ * e.g. by update or setWordThreshold, the cache is cleared the next
+ * time it is used, so it never answers with an old model.
+ */
+public class ClassificationCache {
+    private final BayesTextClassifier classifier;
+    private final Tokenizer tokenizer;
+    private final TermIndex termIndex;
+    // Cached results in access order, guarded by this
+    private final LinkedHashMap<Long, Result> entries;
+    // The weights the cached results were computed with, guarded by this
+    private BayesTextClassifier.Weights weights;
+    private long hits;
+    private long misses;
+
+    /**
+     * The label and the scores of a text
+     */
+    public static class Result {
+        private final String label;
+        private final double[] scores;
+        // The weights the label and the scores were computed with
+        final BayesTextClassifier.Weights weights;
+
+        Result(String label, double[] scores, BayesTextClassifier.Weights weights) {
+            this.label = label;
+            this.scores = scores;
+            this.weights = weights;
+        }
+
+        /**
+         * @return the label of the text, "" if the classifier has no labels
+         */
+        public String getLabel() {
+            return this.label;
+        }
+
+        /**
+         * @return the sum for each label like in BayesTextClassifier.score,
+         *         shared by all users of the entry, don't modify it
+         */
+        public double[] getScores() {
+            return this.scores;
+        }
+    }
+
+    /**
+     * @param classifier the classifier the texts are classified with
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param termIndex the index the word ids are taken from, the one of the classifier
+     * @param capacity the maximal number of cached results
+     */
+    public ClassificationCache(BayesTextClassifier classifier, Tokenizer tokenizer, TermIndex termIndex, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.classifier = classifier;
+        this.tokenizer = tokenizer;
+        this.termIndex = LookupOnlyIndex.of(termIndex);
+        this.entries = new LinkedHashMap<Long, Result>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Result> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Classifies a text, or returns the cached result of the same text
+     *
+     * @param text the text which will be classified
+     * @return the label and the scores of the text
+     */
+    public Result classify(String text) {
+        long key = hash(text);
+        Result result = this.get(key);
+        if (result == null) {
+            // scored outside the lock, concurrent misses of the same text
+            // compute the same result and the last one is kept
+            result = this.score(text);
+            this.put(key, result);
+        }
+        return result;
+    }
+
+    private Result score(String text) {
+        int[] tokens = this.tokenizer.tokenize(text);
+        Document document = new Document(text, tokens, this.tokenizer.getNGramLength(), null, this.termIndex);
+        BayesTextClassifier.Weights weights = this.classifier.getWeights();
+        double[] scores = new double[weights.label.length];
+        int c = this.classifier.score(weights, document, scores);
+        return new Result(c < 0 ? "" : weights.label[c], scores, weights);
+    }
+
+    /**
+     * Gets the cached result of a text, counted as a hit or a miss
+     *
+     * @param key the hash of the text, see hash
+     * @return the result computed with the current weights, null if there is none
+     */
+    Result get(long key) {
+        BayesTextClassifier.Weights weights = this.classifier.getWeights();
+        synchronized (this) {
+            this.checkWeights(weights);
+            Result result = this.entries.get(key);
+            if (result != null) {
+                this.hits++;
+                Metrics.count(Metrics.Counter.CACHE_HITS, 1);
+                return result;
+            }
+            this.misses++;
+            Metrics.count(Metrics.Counter.CACHE_MISSES, 1);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the result of a text, results of replaced weights are left out
+     *
+     * @param key the hash of the text, see hash
+     * @param result the result of the text
+     */
+    void put(long key, Result result) {
+        BayesTextClassifier.Weights weights = this.classifier.getWeights();
+        synchronized (this) {
+            this.checkWeights(weights);
+            if (result.weights == weights) {
+                this.entries.put(key, result);
+            }
+        }
+    }
+
+    /**
+     * Clears the cached results if the classifier was changed since they were computed
+     */
+    private void checkWeights(BayesTextClassifier.Weights weights) {
+        if (weights != this.weights) {
+            this.entries.clear();
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Removes all cached results, the counters are kept
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the number of classifications answered from the cache
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of classifications which had to be computed
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the normalized text, the parts between
+     * spaces are trimmed like in Tokenizer
+     */
+    static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        boolean empty = true;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            while (i < length && text.charAt(i) != ' ') {
+                i++;
+            }
+            int end = i++;
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                continue;
+            }
+            if (!empty) {
+                h ^= ' ';
+                h *= 0x100000001b3L;
+            }
+            for (int k = start; k < end; k++) {
+                h ^= text.charAt(k);
+                h *= 0x100000001b3L;
+            }
+            empty = false;
+        }
+        return h;
+    }
+}
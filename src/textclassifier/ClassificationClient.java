@@ -0,0 +1,84 @@
+package textclassifier;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Connects to a ClassificationServer on the loopback address.
+ * A client isn't thread-safe, every thread needs its own.
+ */
+public class ClassificationClient implements Closeable {
+    // number of texts sent before their labels are read
+    private static final int WINDOW = 1024;
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final BufferedWriter writer;
+
+    /**
+     * @param port the port of the server
+     * @throws IOException if the server can't be reached
+     */
+    public ClassificationClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.reader = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+        this.writer = new BufferedWriter(new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * @param text the text which will be classified
+     * @return the label of the text
+     * @throws IOException if the connection fails
+     */
+    public String classify(String text) throws IOException {
+        this.send(text);
+        this.writer.flush();
+        return this.receive();
+    }
+
+    /**
+     * Classifies all texts. They are sent in windows, so the server
+     * can classify many of them at once.
+     *
+     * @param texts the texts which will be classified
+     * @return the labels of the texts in the order of the texts
+     * @throws IOException if the connection fails
+     */
+    public String[] classifyAll(List<String> texts) throws IOException {
+        String[] labels = new String[texts.size()];
+        for (int from = 0; from < labels.length; from += WINDOW) {
+            int to = Math.min(labels.length, from + WINDOW);
+            for (int j = from; j < to; j++) {
+                this.send(texts.get(j));
+            }
+            this.writer.flush();
+            for (int j = from; j < to; j++) {
+                labels[j] = this.receive();
+            }
+        }
+        return labels;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+
+    private void send(String text) throws IOException {
+        // a line break would end the text, it is sent as a space
+        this.writer.write(text.replace('\n', ' ').replace('\r', ' '));
+        this.writer.newLine();
+    }
+
+    private String receive() throws IOException {
+        String label = this.reader.readLine();
+        if (label == null) {
+            throw new EOFException("the server closed the connection");
+        }
+        return label;
+    }
+}
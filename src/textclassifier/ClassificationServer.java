@@ -0,0 +1,301 @@
+package textclassifier;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Serves a trained classifier on a local TCP port, so it is loaded
+ * once and used for many requests. The protocol is line based like
+ * the corpus files: the client sends one text per line and gets the
+ * label of every text as one line, in the order of the texts. A
+ * client may send many texts before reading the labels.
+ *
+ * Every connection is handled by its own thread, which tokenizes
+ * the texts. The documents of all connections are gathered in a
+ * queue and classified in batches with classifyAll: while a batch
+ * is scored the next one fills up, so under load the batches grow
+ * without waiting for a timeout.
+ *
+ * Words which aren't in the vocabulary of the classifier are only
+ * looked up and not added, so the vocabulary doesn't grow while
+ * the server runs.
+ *
+ * With a cache size the labels of texts seen before are taken from
+ * a ClassificationCache by the connection thread, only the other
+ * texts are tokenized and queued. The batches put their results into
+ * the cache. The cache follows changes of the classifier, see
+ * ClassificationCache.
+ */
+public class ClassificationServer implements Closeable {
+    // default maximal number of documents classified at once
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private final BayesTextClassifier classifier;
+    private final Tokenizer tokenizer;
+    private final TermIndex termIndex;
+    private final ForkJoinPool pool;
+    private final int maxBatchSize;
+    // Results of texts seen before, null without a cache
+    private final ClassificationCache cache;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final BlockingQueue<Request> queue;
+    private final Set<Socket> sockets;
+    private final Thread acceptor;
+    private final Thread batcher;
+    private volatile boolean closed;
+
+    /**
+     * A document waiting for its label
+     */
+    private static class Request {
+        final Document document;
+        // hash of the text, see ClassificationCache.hash
+        final long key;
+        final CompletableFuture<String> label;
+
+        Request(Document document, long key) {
+            this.document = document;
+            this.key = key;
+            this.label = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Starts a server on the loopback address
+     *
+     * @param classifier the classifier the texts are classified with
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param termIndex the index the word ids are taken from, the one of the classifier
+     * @param port the port, 0 for any free port
+     * @param pool the pool the batches are classified on, null for the batching thread
+     * @throws IOException if the port can't be bound
+     */
+    public ClassificationServer(BayesTextClassifier classifier, Tokenizer tokenizer, TermIndex termIndex,
+                                int port, ForkJoinPool pool) throws IOException {
+        this(classifier, tokenizer, termIndex, port, pool, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Starts a server on the loopback address
+     *
+     * @param classifier the classifier the texts are classified with
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param termIndex the index the word ids are taken from, the one of the classifier
+     * @param port the port, 0 for any free port
+     * @param pool the pool the batches are classified on, null for the batching thread
+     * @param maxBatchSize the maximal number of documents classified at once
+     * @throws IOException if the port can't be bound
+     */
+    public ClassificationServer(BayesTextClassifier classifier, Tokenizer tokenizer, TermIndex termIndex,
+                                int port, ForkJoinPool pool, int maxBatchSize) throws IOException {
+        this(classifier, tokenizer, termIndex, port, pool, maxBatchSize, 0);
+    }
+
+    /**
+     * Starts a server on the loopback address
+     *
+     * @param classifier the classifier the texts are classified with
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param termIndex the index the word ids are taken from, the one of the classifier
+     * @param port the port, 0 for any free port
+     * @param pool the pool the batches are classified on, null for the batching thread
+     * @param maxBatchSize the maximal number of documents classified at once
+     * @param cacheSize the maximal number of cached results, 0 for no cache
+     * @throws IOException if the port can't be bound
+     */
+    public ClassificationServer(BayesTextClassifier classifier, Tokenizer tokenizer, TermIndex termIndex,
+                                int port, ForkJoinPool pool, int maxBatchSize, int cacheSize) throws IOException {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative: " + cacheSize);
+        }
+        this.classifier = classifier;
+        this.tokenizer = tokenizer;
+        this.termIndex = LookupOnlyIndex.of(termIndex);
+        this.pool = pool;
+        this.maxBatchSize = maxBatchSize;
+        this.cache = cacheSize == 0 ? null : new ClassificationCache(classifier, tokenizer, termIndex, cacheSize);
+        this.queue = new LinkedBlockingQueue<>();
+        this.sockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+        // one thread per connection, they mostly wait for the client or their labels
+        this.connections = Executors.newCachedThreadPool();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        this.batcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                batch();
+            }
+        }, "classification-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+        this.acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "classification-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * @return the cache of the server, null without a cache
+     */
+    public ClassificationCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.serverSocket.close();
+        for (Socket socket : this.sockets) {
+            socket.close();
+        }
+        this.connections.shutdownNow();
+        this.batcher.interrupt();
+    }
+
+    private void accept() {
+        while (!this.closed) {
+            final Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                if (!this.closed) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            this.sockets.add(socket);
+            this.connections.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the texts of a connection and writes their labels. The labels
+     * are written in the order of the texts once they are classified,
+     * texts read in the meantime are queued behind them.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            ArrayDeque<Request> pending = new ArrayDeque<>();
+            String text;
+            while ((text = reader.readLine()) != null) {
+                pending.add(this.request(text));
+                // answers all classified texts, and all of them if the client waits
+                while (!pending.isEmpty() && (pending.peek().label.isDone() || !reader.ready())) {
+                    writer.write(pending.poll().label.get());
+                    writer.newLine();
+                }
+                if (pending.isEmpty()) {
+                    writer.flush();
+                }
+            }
+            while (!pending.isEmpty()) {
+                writer.write(pending.poll().label.get());
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (SocketException e) {
+            // the connection was closed
+        } catch (IOException | ExecutionException e) {
+            if (!this.closed) {
+                e.printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Creates the request of a text, answered from the cache
+     * or queued for the next batch
+     */
+    private Request request(String text) {
+        long key = ClassificationCache.hash(text);
+        ClassificationCache.Result cached = this.cache == null ? null : this.cache.get(key);
+        if (cached != null) {
+            Request request = new Request(null, key);
+            request.label.complete(cached.getLabel());
+            return request;
+        }
+        Request request = new Request(new Document(text, this.tokenizer.tokenize(text),
+                this.tokenizer.getNGramLength(), null, this.termIndex), key);
+        this.queue.add(request);
+        return request;
+    }
+
+    /**
+     * Takes the queued documents in batches of up to maxBatchSize
+     * and classifies them. All documents of a batch are scored with
+     * the same weights, with a cache their results are cached.
+     */
+    private void batch() {
+        ArrayList<Request> batch = new ArrayList<>(this.maxBatchSize);
+        ArrayList<Document> documents = new ArrayList<>(this.maxBatchSize);
+        while (!this.closed) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            this.queue.drainTo(batch, this.maxBatchSize - 1);
+            for (Request request : batch) {
+                documents.add(request.document);
+            }
+            try {
+                BayesTextClassifier.Weights weights = this.classifier.getWeights();
+                int labelCount = weights.label.length;
+                double[] scores = this.cache == null ? null : new double[documents.size() * labelCount];
+                int[] labels = this.classifier.scoreAll(weights, documents, scores, this.pool);
+                Metrics.count(Metrics.Counter.SERVER_BATCHES, 1);
+                Metrics.count(Metrics.Counter.SERVER_DOCUMENTS, labels.length);
+                for (int j = 0; j < labels.length; j++) {
+                    Request request = batch.get(j);
+                    String label = labels[j] < 0 ? "" : weights.label[labels[j]];
+                    if (this.cache != null) {
+                        this.cache.put(request.key, new ClassificationCache.Result(label,
+                                Arrays.copyOfRange(scores, j * labelCount, (j + 1) * labelCount), weights));
+                    }
+                    request.label.complete(label);
+                }
+            } catch (RuntimeException e) {
+                for (Request request : batch) {
+                    request.label.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+            documents.clear();
+        }
+    }
+}
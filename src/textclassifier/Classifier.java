@@ -0,0 +1,25 @@
+package textclassifier;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Labels documents, implemented by the single BayesTextClassifier
+ * and by the EnsembleClassifier of several of them.
+ */
+public interface Classifier {
+    /**
+     * @param document the document which will be classified
+     * @return the label of the document, "" if there are no labels
+     */
+    String classify(Document document);
+
+    /**
+     * Classifies all documents, with a pool in parallel
+     *
+     * @param documents the documents which will be classified
+     * @param pool the pool to run on, null for the calling thread
+     * @return the labels of the documents in the order of the documents
+     */
+    String[] classifyAll(List<Document> documents, ForkJoinPool pool);
+}
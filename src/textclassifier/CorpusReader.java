@@ -0,0 +1,264 @@
+package textclassifier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads documents from a file lazily. Two formats are supported,
+ * one document per line:
+ * - classified documents: label TAB "text"
+ * - unclassified documents: "text"
+ * The double quotes of the text are replaced by white spaces.
+ *
+ * The file is memory mapped in chunks which end at a line end.
+ * A window of chunks is parsed in parallel, the records are
+ * returned in the order of the file. Only the current window
+ * is held in memory, so the file may be bigger than the heap.
+ *
+ * Lines of classified documents are split at the tabs like
+ * String.split("\t"), so tabs at the end of a line are ignored.
+ * Lines without exactly one other tab, which includes lines with
+ * a label but an empty text, are skipped and counted, see
+ * getMalformedLines().
+ */
+public class CorpusReader implements Iterator<CorpusReader.Record>, Closeable {
+    /**
+     * One line of the file
+     */
+    public static class Record {
+        private final String label;
+        private final String text;
+        private final int[] tokens;
+        private final int ngramLength;
+
+        Record(String label, String text, int[] tokens, int ngramLength) {
+            this.label = label;
+            this.text = text;
+            this.tokens = tokens;
+            this.ngramLength = ngramLength;
+        }
+
+        /**
+         * @return the label, null for unclassified documents
+         */
+        public String getLabel() {
+            return this.label;
+        }
+
+        public String getText() {
+            return this.text;
+        }
+
+        /**
+         * @return the start and end index of every word of the text, see Tokenizer
+         */
+        public int[] getTokens() {
+            return this.tokens;
+        }
+
+        /**
+         * Creates the document of this record
+         * @param termIndex the index the word ids are taken from
+         * @return the document
+         */
+        public Document toDocument(TermIndex termIndex) {
+            return new Document(this.text, this.tokens, this.ngramLength, this.label, termIndex);
+        }
+    }
+
+    // default size of a chunk in bytes
+    public static final int CHUNK_SIZE = 4 << 20;
+
+    private FileChannel channel;
+    private long size;
+    private long position;
+    private boolean classified;
+    private Tokenizer tokenizer;
+    private ForkJoinPool pool;
+    private int chunkSize;
+    private int malformedLines;
+
+    // records of the current window
+    private ArrayList<Record> records;
+    private int next;
+
+    /**
+     * Opens a file for reading
+     *
+     * @param filePath the file with the documents
+     * @param classified true if every line starts with a label
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param pool the pool to parse on, null for the calling thread
+     * @throws IOException if the file can't be opened
+     */
+    public CorpusReader(String filePath, boolean classified, Tokenizer tokenizer, ForkJoinPool pool) throws IOException {
+        this(filePath, classified, tokenizer, pool, CHUNK_SIZE);
+    }
+
+    /**
+     * Opens a file for reading
+     *
+     * @param filePath the file with the documents
+     * @param classified true if every line starts with a label
+     * @param tokenizer the tokenizer the texts are splitted with
+     * @param pool the pool to parse on, null for the calling thread
+     * @param chunkSize the size of a chunk in bytes, chunks grow for longer lines
+     * @throws IOException if the file can't be opened
+     */
+    public CorpusReader(String filePath, boolean classified, Tokenizer tokenizer, ForkJoinPool pool, int chunkSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.position = 0;
+        this.classified = classified;
+        this.tokenizer = tokenizer;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.records = new ArrayList<>();
+        this.next = 0;
+    }
+
+    /**
+     * @return all remaining records as ordered stream
+     */
+    public Stream<Record> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return the number of lines skipped so far because they had no label
+     */
+    public int getMalformedLines() {
+        return this.malformedLines;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (this.next == this.records.size() && this.position < this.size) {
+                this.readWindow();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this.next < this.records.size();
+    }
+
+    @Override
+    public Record next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.records.get(this.next++);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Maps the next chunks, one per thread, and parses them in parallel
+     */
+    private void readWindow() throws IOException {
+        long start = Metrics.start();
+        int parallelism = this.pool == null ? 1 : this.pool.getParallelism();
+        final ArrayList<MappedByteBuffer> chunks = new ArrayList<>();
+        while (chunks.size() < parallelism && this.position < this.size) {
+            chunks.add(this.mapChunk());
+        }
+        final List<List<Record>> parsed = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            parsed.add(new ArrayList<Record>());
+        }
+        final int[] malformed = new int[chunks.size()];
+        ParallelLoop.forRange(this.pool, 0, chunks.size(), 1, new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    malformed[i] = parseChunk(chunks.get(i), parsed.get(i));
+                }
+            }
+        });
+        this.records.clear();
+        this.next = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            this.records.addAll(parsed.get(i));
+            this.malformedLines += malformed[i];
+        }
+        Metrics.stop(Metrics.Timer.READ, start);
+    }
+
+    /**
+     * Maps the chunk starting at the current position. The chunk
+     * ends after the last line end inside it, or at the end of the file.
+     */
+    private MappedByteBuffer mapChunk() throws IOException {
+        long length = Math.min(this.chunkSize, this.size - this.position);
+        while (true) {
+            MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+            if (this.position + length == this.size) {
+                this.position = this.size;
+                return buffer;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    buffer.limit(i + 1);
+                    this.position += i + 1;
+                    return buffer;
+                }
+            }
+            // the line is longer than the chunk
+            length = Math.min(Math.min(length * 2, Integer.MAX_VALUE), this.size - this.position);
+        }
+    }
+
+    /**
+     * Parses the lines of a chunk into records
+     * @return the number of malformed lines
+     */
+    private int parseChunk(MappedByteBuffer chunk, List<Record> records) {
+        String content = StandardCharsets.UTF_8.decode(chunk).toString();
+        int malformed = 0;
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            if (end < 0) {
+                end = content.length();
+            }
+            int lineEnd = end > start && content.charAt(end - 1) == '\r' ? end - 1 : end;
+            String label = null;
+            int textStart = start;
+            if (this.classified) {
+                // like String.split, which drops the empty strings at the end
+                while (lineEnd > start && content.charAt(lineEnd - 1) == '\t') {
+                    lineEnd--;
+                }
+                int tab = content.indexOf('\t', start);
+                if (tab < 0 || tab >= lineEnd || content.lastIndexOf('\t', lineEnd - 1) != tab) {
+                    malformed++;
+                    start = end + 1;
+                    continue;
+                }
+                label = content.substring(start, tab);
+                textStart = tab + 1;
+            }
+            // every line of unclassified documents is a record, also empty
+            // ones, so the classifications keep the line numbers of the file
+            String text = content.substring(textStart, lineEnd).replace('"', ' ').trim();
+            records.add(new Record(label, text, this.tokenizer.tokenize(text), this.tokenizer.getNGramLength()));
+            start = end + 1;
+        }
+        return malformed;
+    }
+}
@@ -0,0 +1,119 @@
+package textclassifier;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Collects the corpus level statistics the transformations
+ * of the documents depend on. Right now this is the number
+ * of documents N and for each word the number of documents
+ * it occurs in (document frequency), indexed by the term id.
+ *
+ * The statistics are built in one pass over the training
+ * documents, so the IDF transform doesn't need to rescan
+ * all documents for every single word.
+ */
+public class CorpusStatistics {
+    // Stores for each term id the number of documents containing it
+    private int[] documentFrequency;
+    // Number of documents seen
+    private int documentCount;
+
+    public CorpusStatistics() {
+        this.documentFrequency = new int[1024];
+        this.documentCount = 0;
+    }
+
+    /**
+     * Builds the statistics for the given documents
+     * @param allDocuments All documents for training
+     */
+    public CorpusStatistics(List<Document> allDocuments) {
+        this();
+        for (Document document : allDocuments) {
+            this.add(document);
+        }
+    }
+
+    /**
+     * Builds the statistics for the given documents in parallel.
+     * Every thread counts a part of the documents, the partial
+     * statistics are merged afterwards.
+     *
+     * @param allDocuments All documents for training
+     * @param pool the pool to run on, null for the calling thread
+     */
+    public CorpusStatistics(final List<Document> allDocuments, ForkJoinPool pool) {
+        this();
+        ParallelLoop.forRange(pool, 0, allDocuments.size(), ParallelLoop.grain(pool, allDocuments.size()), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                CorpusStatistics partial = new CorpusStatistics(allDocuments.subList(from, to));
+                synchronized (CorpusStatistics.this) {
+                    merge(partial);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a document to the statistics
+     * @param document the document which will be counted
+     */
+    public void add(Document document) {
+        this.documentCount++;
+        int[] termIds = document.getTermIds();
+        if (termIds.length > 0 && termIds[termIds.length - 1] >= this.documentFrequency.length) {
+            int length = Math.max(this.documentFrequency.length * 2, termIds[termIds.length - 1] + 1);
+            this.documentFrequency = Arrays.copyOf(this.documentFrequency, length);
+        }
+        for (int termId : termIds) {
+            this.documentFrequency[termId]++;
+        }
+    }
+
+    /**
+     * Adds the counts of other statistics to these ones
+     * @param other the statistics which will be added
+     */
+    public void merge(CorpusStatistics other) {
+        if (other.documentFrequency.length > this.documentFrequency.length) {
+            this.documentFrequency = Arrays.copyOf(this.documentFrequency, other.documentFrequency.length);
+        }
+        for (int i = 0; i < other.documentFrequency.length; i++) {
+            this.documentFrequency[i] += other.documentFrequency[i];
+        }
+        this.documentCount += other.documentCount;
+    }
+
+    /**
+     * Removes the counts of other statistics from these ones,
+     * the documents of other must have been counted here too
+     * @param other the statistics which will be removed
+     */
+    public void subtract(CorpusStatistics other) {
+        int length = Math.min(this.documentFrequency.length, other.documentFrequency.length);
+        for (int i = 0; i < length; i++) {
+            this.documentFrequency[i] -= other.documentFrequency[i];
+        }
+        this.documentCount -= other.documentCount;
+    }
+
+    /**
+     * @return the number of documents N
+     */
+    public int getDocumentCount() {
+        return this.documentCount;
+    }
+
+    /**
+     * Gets the number of documents the word occurs in.
+     * Returns zero if the word is unknown.
+     *
+     * @param termId the id of the word the document frequency is returned for
+     * @return the document frequency
+     */
+    public int getDocumentFrequency(int termId) {
+        return termId < this.documentFrequency.length ? this.documentFrequency[termId] : 0;
+    }
+}
@@ -0,0 +1,300 @@
+package textclassifier;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Seeded k-fold cross validation. The documents are shuffled with
+ * the seed and dealt into k folds, every fold is classified by a
+ * model trained with the other k - 1 folds.
+ *
+ * The documents are tokenized once by the caller. Their improved
+ * counts are calculated once with the document frequencies of all
+ * documents and the statistics of all documents are built once.
+ * The model of a fold is derived from them by subtracting the
+ * statistics of the fold (ClassStatistics.subtract) instead of
+ * training it from scratch. The document frequencies of the IDF
+ * transform therefore include the documents of the fold, their
+ * labels are never used.
+ *
+ * The models of the folds are trained with the given settings, so
+ * the transformations, word threshold and pruning of the evaluated
+ * model are used. The folds are trained and classified in parallel
+ * on the pool of the trainer. Every fold copies the sums of all
+ * documents and computes its own weights, so only as many folds run
+ * at once as the free heap holds. With off-heap settings the weights
+ * of the folds are direct buffers, they are counted against the free
+ * direct memory instead of the heap.
+ */
+public class CrossValidation {
+    // bytes per (term, label) of a fold running on the heap: the copied sums and the spreads of the pruning
+    private static final int HEAP_BYTES_PER_FOLD_WEIGHT = 16;
+    // bytes per (term, label) of the weights of a fold, on the heap or in direct memory
+    private static final int BYTES_PER_WEIGHT = 8;
+
+    private final ParallelTrainer trainer;
+    private final TrainingSettings settings;
+    private final int foldCount;
+    private final long seed;
+
+    /**
+     * The accuracy and time of every fold
+     */
+    public static class Result {
+        private final double[] accuracy;
+        private final long[] time;
+        private final long sharedTime;
+        private final long totalTime;
+
+        Result(double[] accuracy, long[] time, long sharedTime, long totalTime) {
+            this.accuracy = accuracy;
+            this.time = time;
+            this.sharedTime = sharedTime;
+            this.totalTime = totalTime;
+        }
+
+        /**
+         * @return the number of folds
+         */
+        public int getFoldCount() {
+            return this.accuracy.length;
+        }
+
+        /**
+         * @param fold the index of a fold
+         * @return the share of correctly labeled documents of the fold
+         */
+        public double getAccuracy(int fold) {
+            return this.accuracy[fold];
+        }
+
+        /**
+         * @param fold the index of a fold
+         * @return the milliseconds spent on training and classifying the fold
+         */
+        public long getTime(int fold) {
+            return this.time[fold];
+        }
+
+        /**
+         * @return the mean accuracy of all folds
+         */
+        public double getMeanAccuracy() {
+            double sum = 0;
+            for (double a : this.accuracy) {
+                sum += a;
+            }
+            return sum / this.accuracy.length;
+        }
+
+        /**
+         * @return the standard deviation of the accuracy of the folds
+         */
+        public double getAccuracyDeviation() {
+            double mean = this.getMeanAccuracy();
+            double sum = 0;
+            for (double a : this.accuracy) {
+                sum += (a - mean) * (a - mean);
+            }
+            return Math.sqrt(sum / this.accuracy.length);
+        }
+
+        /**
+         * @return the milliseconds spent on the improved counts and statistics of all documents
+         */
+        public long getSharedTime() {
+            return this.sharedTime;
+        }
+
+        /**
+         * @return the milliseconds the whole cross validation took
+         */
+        public long getTotalTime() {
+            return this.totalTime;
+        }
+    }
+
+    /**
+     * Creates a cross validation of models with the default settings
+     *
+     * @param trainer the trainer providing the pool
+     * @param foldCount the number of folds, at least 2
+     * @param seed the seed the documents are shuffled with
+     */
+    public CrossValidation(ParallelTrainer trainer, int foldCount, long seed) {
+        this(trainer, TrainingSettings.DEFAULT, foldCount, seed);
+    }
+
+    /**
+     * Creates a cross validation of models with the given settings
+     *
+     * @param trainer the trainer providing the pool
+     * @param settings the settings the model of every fold is trained with
+     * @param foldCount the number of folds, at least 2
+     * @param seed the seed the documents are shuffled with
+     */
+    public CrossValidation(ParallelTrainer trainer, TrainingSettings settings, int foldCount, long seed) {
+        if (foldCount < 2) {
+            throw new IllegalArgumentException("foldCount must be at least 2: " + foldCount);
+        }
+        this.trainer = trainer;
+        this.settings = settings;
+        this.foldCount = foldCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the cross validation. The improved counts of the
+     * documents are calculated.
+     *
+     * @param documents the labeled documents
+     * @return the accuracy and time of every fold
+     */
+    public Result evaluate(List<Document> documents) {
+        if (documents.size() < this.foldCount) {
+            throw new IllegalArgumentException("less documents than folds: " + documents.size());
+        }
+        long startTime = System.currentTimeMillis();
+        // deals the shuffled documents into the folds, keeping their order within a fold
+        Integer[] order = new Integer[documents.size()];
+        for (int j = 0; j < order.length; j++) {
+            order[j] = j;
+        }
+        Collections.shuffle(Arrays.asList(order), new Random(this.seed));
+        int[] foldOf = new int[documents.size()];
+        for (int j = 0; j < order.length; j++) {
+            foldOf[order[j]] = j % this.foldCount;
+        }
+        final List<List<Document>> folds = new ArrayList<>();
+        for (int f = 0; f < this.foldCount; f++) {
+            folds.add(new ArrayList<Document>());
+        }
+        for (int j = 0; j < documents.size(); j++) {
+            folds.get(foldOf[j]).add(documents.get(j));
+        }
+
+        final Transform transform = this.settings.getTransform();
+        this.trainer.calculateImprovedCounts(documents, transform);
+        final ClassStatistics statistics = new ClassStatistics(transform);
+        statistics.addAll(documents, this.trainer.getPool());
+        long sharedTime = System.currentTimeMillis() - startTime;
+
+        final double[] accuracy = new double[this.foldCount];
+        final long[] time = new long[this.foldCount];
+        int parallelFolds = this.parallelFolds(statistics);
+        for (int first = 0; first < this.foldCount; first += parallelFolds) {
+            ParallelLoop.forRange(this.trainer.getPool(), first, Math.min(first + parallelFolds, this.foldCount), 1, new ParallelLoop.Body() {
+                @Override
+                public void run(int from, int to) {
+                    for (int f = from; f < to; f++) {
+                        evaluateFold(f, folds.get(f), statistics, accuracy, time);
+                    }
+                }
+            });
+        }
+        return new Result(accuracy, time, sharedTime, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Trains the model of a fold and classifies the documents of the fold
+     */
+    private void evaluateFold(int f, List<Document> fold, ClassStatistics statistics, double[] accuracy, long[] time) {
+        long foldStartTime = System.currentTimeMillis();
+        ClassStatistics foldStatistics = new ClassStatistics(this.settings.getTransform());
+        foldStatistics.addAll(fold, null);
+        BayesTextClassifier classifier = new BayesTextClassifier(statistics.subtract(foldStatistics), null, this.settings);
+        String[] labels = classifier.classifyAll(fold, null);
+        int countCorrect = 0;
+        for (int j = 0; j < labels.length; j++) {
+            if (labels[j].equals(fold.get(j).getLabel())) {
+                countCorrect++;
+            }
+        }
+        accuracy[f] = countCorrect * 1.0 / fold.size();
+        time[f] = System.currentTimeMillis() - foldStartTime;
+    }
+
+    /**
+     * Gets how many folds run at once: at most the parallelism of the
+     * pool and as many as the free heap holds, with off-heap settings
+     * also as many as the free direct memory holds, but at least one
+     *
+     * @param statistics the statistics of all documents
+     * @return the number of folds running at once
+     */
+    private int parallelFolds(ClassStatistics statistics) {
+        ForkJoinPool pool = this.trainer.getPool();
+        int parallelism = pool == null ? 1 : pool.getParallelism();
+        long weights = (long) statistics.getLabelCount() * statistics.getTermCount();
+        if (weights == 0) {
+            return Math.min(parallelism, this.foldCount);
+        }
+        boolean offHeap = this.settings.isOffHeap();
+        long heapBytes = (offHeap ? HEAP_BYTES_PER_FOLD_WEIGHT : HEAP_BYTES_PER_FOLD_WEIGHT + BYTES_PER_WEIGHT) * weights;
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long fitting = freeHeap / heapBytes;
+        if (offHeap) {
+            fitting = Math.min(fitting, freeDirectMemory() / (BYTES_PER_WEIGHT * weights));
+        }
+        return (int) Math.max(1, Math.min(parallelism, Math.min(fitting, this.foldCount)));
+    }
+
+    /**
+     * @return the bytes of direct buffers which can still be allocated
+     */
+    private static long freeDirectMemory() {
+        long used = 0;
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (bufferPool.getName().equals("direct")) {
+                used = bufferPool.getMemoryUsed();
+            }
+        }
+        List<String> arguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        return maxDirectMemory(arguments, Runtime.getRuntime().maxMemory()) - used;
+    }
+
+    /**
+     * Gets the limit of the direct buffers: -XX:MaxDirectMemorySize,
+     * by default the maximal heap size like the JVM does
+     *
+     * @param arguments the arguments of the JVM
+     * @param maxHeap the maximal heap size
+     * @return the limit in bytes
+     */
+    static long maxDirectMemory(List<String> arguments, long maxHeap) {
+        long max = maxHeap;
+        for (String argument : arguments) {
+            if (!argument.startsWith("-XX:MaxDirectMemorySize=")) {
+                continue;
+            }
+            String size = argument.substring(argument.indexOf('=') + 1).toLowerCase(Locale.ROOT);
+            int shift = 0;
+            switch (size.isEmpty() ? ' ' : size.charAt(size.length() - 1)) {
+                case 't':
+                    shift = 40;
+                    break;
+                case 'g':
+                    shift = 30;
+                    break;
+                case 'm':
+                    shift = 20;
+                    break;
+                case 'k':
+                    shift = 10;
+                    break;
+                default:
+            }
+            try {
+                long value = Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1)) << shift;
+                // 0 is the default
+                max = value > 0 ? value : maxHeap;
+            } catch (NumberFormatException e) {
+                // the JVM wouldn't have started, keep the default
+            }
+        }
+        return max;
+    }
+}
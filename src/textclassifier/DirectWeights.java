@@ -0,0 +1,133 @@
+package textclassifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The weights of a classifier outside of the heap, little endian
+ * doubles in direct buffers or in the mapping of a model file.
+ * They are term major like the weight array of BayesTextClassifier.
+ *
+ * A buffer can't be larger than 2 GB, so the weights are split into
+ * segments of whole rows. All weights of a row lie in one segment
+ * and are read from one position. Row r lies in segment
+ * r / segmentRows at byte (r % segmentRows) * labelCount * 8.
+ *
+ * Different weights can be written by many threads at once.
+ */
+final class DirectWeights {
+    // maximal size of a segment in bytes
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final ByteBuffer[] segments;
+    private final int rows;
+    private final int labelCount;
+    private final int segmentRows;
+
+    private DirectWeights(ByteBuffer[] segments, int rows, int labelCount, int segmentRows) {
+        this.segments = segments;
+        this.rows = rows;
+        this.labelCount = labelCount;
+        this.segmentRows = segmentRows;
+    }
+
+    /**
+     * Allocates zeroed weights in direct buffers
+     *
+     * @param rows the number of rows
+     * @param labelCount the number of weights per row
+     * @return the weights
+     */
+    static DirectWeights allocate(int rows, int labelCount) {
+        return allocate(rows, labelCount, SEGMENT_SIZE);
+    }
+
+    /**
+     * Allocates zeroed weights in direct buffers of at most segmentSize bytes
+     */
+    static DirectWeights allocate(int rows, int labelCount, int segmentSize) {
+        int segmentRows = segmentRows(labelCount, segmentSize);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(rows, segmentRows)];
+        for (int s = 0; s < segments.length; s++) {
+            int size = Math.min(segmentRows, rows - s * segmentRows) * labelCount * 8;
+            segments[s] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new DirectWeights(segments, rows, labelCount, segmentRows);
+    }
+
+    /**
+     * Maps weights stored in a file, see ModelFile. The mappings
+     * stay valid after the channel is closed.
+     *
+     * @param channel the file
+     * @param position the position of the first weight in the file
+     * @param rows the number of rows
+     * @param labelCount the number of weights per row
+     * @return the weights
+     * @throws IOException if the file can't be mapped
+     */
+    static DirectWeights map(FileChannel channel, long position, int rows, int labelCount) throws IOException {
+        int segmentRows = segmentRows(labelCount, SEGMENT_SIZE);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(rows, segmentRows)];
+        for (int s = 0; s < segments.length; s++) {
+            long size = (long) Math.min(segmentRows, rows - s * segmentRows) * labelCount * 8;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+            position += size;
+        }
+        return new DirectWeights(segments, rows, labelCount, segmentRows);
+    }
+
+    private static int segmentRows(int labelCount, int segmentSize) {
+        if (labelCount == 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (8L * labelCount > segmentSize) {
+            throw new IllegalStateException("the weights of one term and " + labelCount + " labels don't fit into a segment");
+        }
+        return segmentSize / (8 * labelCount);
+    }
+
+    private static int segmentCount(int rows, int segmentRows) {
+        return rows == 0 ? 0 : (rows - 1) / segmentRows + 1;
+    }
+
+    /**
+     * @param row the row of a term
+     * @return the segment the weights of the row lie in
+     */
+    ByteBuffer segment(int row) {
+        return this.segments[row / this.segmentRows];
+    }
+
+    /**
+     * @param row the row of a term
+     * @return the byte position of the first weight of the row in its segment
+     */
+    int position(int row) {
+        return (row % this.segmentRows) * this.labelCount << 3;
+    }
+
+    double get(int row, int c) {
+        return this.segment(row).getDouble(this.position(row) + (c << 3));
+    }
+
+    void set(int row, int c, double value) {
+        this.segment(row).putDouble(this.position(row) + (c << 3), value);
+    }
+
+    /**
+     * @return the number of rows
+     */
+    int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return the size of all weights in bytes
+     */
+    long getBytes() {
+        return 8L * this.rows * this.labelCount;
+    }
+}
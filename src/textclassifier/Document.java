@@ -0,0 +1,279 @@
+package textclassifier;
+
+import java.util.*;
+
+/**
+ * This class is in charge of a document.
+ * It calculates the counts for the words and stores
+ * them as sparse term vectors: the ids of the words,
+ * taken from a shared TermIndex, sorted ascending with
+ * the counts in parallel arrays. If this is a training
+ * document, the label is already set to a class.
+ * Otherwise one can use the BayesTextClassifier
+ * to classify this document.
+ *
+ * This class is designed for the BayesTextClassifier.
+ *
+ * @author Dennis Meyer, Sebastian Brodehl
+ * machine learning summer term 2014
+ */
+public class Document {
+    // Sorted ids of the words in the document
+    private int[] termIds;
+    // Counts of the words, parallel to termIds
+    private int[] counts;
+    // Improved counts of the words, parallel to termIds
+    private double[] improvedCounts;
+    private String _label;
+
+    public Document(String text, String label, TermIndex termIndex) {
+        this(text, Tokenizer.getDefault().tokenize(text), label, termIndex);
+    }
+
+    /**
+     * Creates a document from a text which is already splitted
+     * into words by a Tokenizer.
+     *
+     * @param text the text of the document
+     * @param tokens the start and end index of every word in the text
+     * @param label the label of the document, null if unknown
+     * @param termIndex the index the word ids are taken from
+     */
+    public Document(String text, int[] tokens, String label, TermIndex termIndex) {
+        this(text, tokens, 1, label, termIndex);
+    }
+
+    /**
+     * Creates a document from a text which is already splitted
+     * into words by a Tokenizer. The n-grams of 2 up to ngramLength
+     * words next to each other are terms of the document as well.
+     *
+     * @param text the text of the document
+     * @param tokens the start and end index of every word in the text
+     * @param ngramLength the maximal number of words of a term, see Tokenizer.getNGramLength
+     * @param label the label of the document, null if unknown
+     * @param termIndex the index the word and n-gram ids are taken from
+     */
+    public Document(String text, int[] tokens, int ngramLength, String label, TermIndex termIndex) {
+        this._label = label;
+        this.transformTokensIntoCounts(text, tokens, ngramLength, termIndex);
+        this.improvedCounts = new double[this.termIds.length];
+    }
+
+    public String getLabel() {
+        return this._label;
+    }
+
+    /**
+     * Gets the ids of the words of this document in ascending
+     * order. The returned array must not be modified.
+     *
+     * @return the sorted term ids
+     */
+    public int[] getTermIds() {
+        return this.termIds;
+    }
+
+    /**
+     * Gets the counts of the words, parallel to getTermIds().
+     * The returned array must not be modified.
+     *
+     * @return the word counts
+     */
+    public int[] getCounts() {
+        return this.counts;
+    }
+
+    /**
+     * Gets the improved counts of the words, parallel to getTermIds().
+     * All values are 0 before calculateImprovedCounts is called.
+     * The returned array must not be modified.
+     *
+     * @return the improved word counts
+     */
+    public double[] getImprovedCounts() {
+        return this.improvedCounts;
+    }
+
+    /**
+     * Gets the improved word count parameter. Returns always
+     * 0 before calculateImprovedCounts isn't called.
+     *
+     * @param termId the id of the word the count is returned for
+     * @return double value 'improved count'
+     */
+    public double getImprovedWordCount(int termId){
+        int index = Arrays.binarySearch(this.termIds, termId);
+        if (index < 0) {
+            return 0.0;
+        }
+        return this.improvedCounts[index];
+    }
+
+    /**
+     * Gets the word count for a given word.
+     * Returns zero if the word isn't in the text.
+     *
+     * @param termId the id of the word the count is returned for
+     * @return int value 'simple count'
+     */
+    public int getWordCount(int termId) {
+        int index = Arrays.binarySearch(this.termIds, termId);
+        if (index < 0) {
+            return 0;
+        }
+        return this.counts[index];
+    }
+
+    /**
+     * Checks of the given word occurs in this document
+     *
+     * @param termId The id of the word which will be checked
+     * @return True if it occurs, false otherwise
+     */
+    public boolean containsWord(int termId) {
+        return Arrays.binarySearch(this.termIds, termId) >= 0;
+    }
+
+    /**
+     * Looks up the words of the text in the vocabulary, followed
+     * by the n-grams of their ids, see NGrams. The ids are sorted
+     * and equal ids are counted up.
+     *
+     * @param text The text of the document
+     * @param tokens The start and end index of every word in the text
+     * @param ngramLength The maximal number of words of a term
+     * @param termIndex The index the word ids are taken from
+     */
+    private void transformTokensIntoCounts(String text, int[] tokens, int ngramLength, TermIndex termIndex) {
+        int words = tokens.length / 2;
+        int size = words + NGrams.count(words, ngramLength);
+        int[] ids = new int[size];
+        for (int i = 0; i < words; i++) {
+            ids[i] = termIndex.getId(text, tokens[2 * i], tokens[2 * i + 1]);
+        }
+        // the word ids are read before they are sorted
+        for (int n = 2, offset = words; n <= ngramLength; n++) {
+            offset = NGrams.addIds(ids, words, n, termIndex, ids, offset);
+        }
+        Arrays.sort(ids, 0, size);
+
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                distinct++;
+            }
+        }
+        this.termIds = new int[distinct];
+        this.counts = new int[distinct];
+        int index = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                this.termIds[++index] = ids[i];
+            }
+            this.counts[index]++;
+        }
+    }
+
+    /**
+     * Calculates the improved weights for the words. Compare with
+     * Paper "Tackling the Poor Assumptions of Naive Base Text Classifiers"
+     *
+     * The method must be called after the corpus statistics
+     * of all training documents being built.
+     *
+     * @param corpusStatistics document frequencies and N of the training documents
+     */
+    public void calculateImprovedCounts(CorpusStatistics corpusStatistics) {
+        this.calculateImprovedCounts(corpusStatistics, Transform.DEFAULT);
+    }
+
+    /**
+     * Calculates the improved weights for the words with the
+     * selected transformations, see calculateImprovedCounts.
+     *
+     * @param corpusStatistics document frequencies and N of the training documents
+     * @param transform the transformations which are applied
+     */
+    public void calculateImprovedCounts(CorpusStatistics corpusStatistics, Transform transform) {
+        // a new array, the old one may be shared with a TransformPipeline
+        double[] improvedCounts = new double[this.termIds.length];
+        transformTermFrequency(this.counts, transform.isTermFrequency(), improvedCounts);
+        if (transform.isInverseDocumentFrequency()) {
+            transformDocumentFrequency(this.termIds, improvedCounts, corpusStatistics, improvedCounts);
+        }
+        if (transform.isLengthNorm()) {
+            normalizeLength(improvedCounts, improvedCounts);
+        }
+        this.improvedCounts = improvedCounts;
+    }
+
+    /**
+     * Sets the improved counts calculated by a TransformPipeline
+     * @param improvedCounts the improved counts, parallel to getTermIds()
+     */
+    void setImprovedCounts(double[] improvedCounts) {
+        this.improvedCounts = improvedCounts;
+    }
+
+    /**
+     * First improvement for TWCNB, compare §4.1 TF trasnform.
+     * Without it the counts are just copied.
+     *
+     * @param counts the word counts
+     * @param termFrequency true for log(count + 1)
+     * @param result receives the transformed counts
+     */
+    static void transformTermFrequency(int[] counts, boolean termFrequency, double[] result) {
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = termFrequency ? Math.log(counts[i] + 1) : counts[i];
+        }
+    }
+
+    /**
+     * Second improvement for TWCNB, compare §4.2 IDF transform
+     *
+     * @param termIds the term ids of the counts
+     * @param counts the counts which are transformed
+     * @param corpusStatistics document frequencies and N of the training documents
+     * @param result receives the transformed counts, may be counts
+     */
+    static void transformDocumentFrequency(int[] termIds, double[] counts, CorpusStatistics corpusStatistics, double[] result) {
+        double documentCount = corpusStatistics.getDocumentCount();
+        for (int i = 0; i < termIds.length; i++) {
+            result[i] = counts[i] * (Math.log(documentCount / corpusStatistics.getDocumentFrequency(termIds[i])));
+        }
+    }
+
+    /**
+     * Third improvement for TWCNB, compare §4.3 length norm
+     *
+     * @param counts the counts which are normalized
+     * @param result receives the normalized counts, may be counts
+     */
+    static void normalizeLength(double[] counts, double[] result) {
+        double lenghtNorm = Math.sqrt(lengthNormHelper(counts));
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = 1.0*counts[i] / lenghtNorm;
+        }
+    }
+
+    private static double lengthNormHelper(double[] counts){
+        double returnValue = 0;
+        for (double improvedCount : counts) {
+            returnValue += (improvedCount * improvedCount);
+        }
+        return returnValue;
+    }
+
+    public boolean equals(Object obj) {
+        if(obj == null) {
+            return false;
+        }
+        if (obj instanceof Document) {
+            Document other = (Document)obj;
+            return other.getLabel().equals(this._label);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,200 @@
+package textclassifier;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bagging: several BayesTextClassifiers, each trained with a
+ * bootstrap sample of the training documents (drawn with
+ * replacement, as many as there are documents), vote on the
+ * label of a document.
+ *
+ * The members share the documents and their improved counts,
+ * only their statistics are built from their own sample. The
+ * members are trained in parallel, all with the same
+ * TrainingSettings.
+ *
+ * Voting is done in memory, either
+ * - MAJORITY: the label most members vote for, ties are broken
+ *   by the lower average score
+ * - AVERAGE: the label with the lowest score averaged over the
+ *   members knowing the label
+ */
+public class EnsembleClassifier implements Classifier {
+    /**
+     * How the votes of the members are combined
+     */
+    public enum Voting {
+        MAJORITY, AVERAGE
+    }
+
+    private final BayesTextClassifier[] members;
+    private final Voting voting;
+    // Stores all labels of the members
+    private final String[] label;
+    // Stores for each member the index in label of its labels
+    private final int[][] memberLabel; // [member][label index of the member]
+    // Stores for each label the number of members knowing it
+    private final int[] memberCount;
+
+    /**
+     * Trains the members. The improved counts of the
+     * training documents must be calculated.
+     *
+     * @param trainingDocuments the documents the members are sampled from
+     * @param members the number of members
+     * @param seed the seed the samples are drawn with
+     * @param voting how the votes are combined
+     * @param pool the pool the members are trained on, null for the calling thread
+     */
+    public EnsembleClassifier(List<Document> trainingDocuments, int members, long seed, Voting voting, ForkJoinPool pool) {
+        this(trainingDocuments, TrainingSettings.DEFAULT, members, seed, voting, pool);
+    }
+
+    /**
+     * Trains the members with the given settings. The improved counts
+     * of the training documents must be calculated with the
+     * transformations of the settings.
+     *
+     * @param trainingDocuments the documents the members are sampled from
+     * @param settings the settings every member is trained with
+     * @param members the number of members
+     * @param seed the seed the samples are drawn with
+     * @param voting how the votes are combined
+     * @param pool the pool the members are trained on, null for the calling thread
+     */
+    public EnsembleClassifier(final List<Document> trainingDocuments, final TrainingSettings settings, int members, long seed,
+                              Voting voting, ForkJoinPool pool) {
+        if (members < 1) {
+            throw new IllegalArgumentException("members must be at least 1: " + members);
+        }
+        this.voting = voting;
+        this.members = new BayesTextClassifier[members];
+        final int[][] samples = new int[members][];
+        Random random = new Random(seed);
+        for (int m = 0; m < members; m++) {
+            int[] sample = new int[trainingDocuments.size()];
+            for (int j = 0; j < sample.length; j++) {
+                sample[j] = random.nextInt(sample.length);
+            }
+            Arrays.sort(sample);
+            samples[m] = sample;
+        }
+
+        ParallelLoop.forRange(pool, 0, members, 1, new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int m = from; m < to; m++) {
+                    ClassStatistics statistics = new ClassStatistics(settings.getTransform());
+                    for (int j : samples[m]) {
+                        statistics.add(trainingDocuments.get(j));
+                    }
+                    EnsembleClassifier.this.members[m] = new BayesTextClassifier(statistics, null, settings);
+                }
+            }
+        });
+
+        Map<String, Integer> labelIndex = new LinkedHashMap<>();
+        this.memberLabel = new int[members][];
+        for (int m = 0; m < members; m++) {
+            String[] memberLabels = this.members[m].getLabels();
+            this.memberLabel[m] = new int[memberLabels.length];
+            for (int c = 0; c < memberLabels.length; c++) {
+                Integer index = labelIndex.get(memberLabels[c]);
+                if (index == null) {
+                    index = labelIndex.size();
+                    labelIndex.put(memberLabels[c], index);
+                }
+                this.memberLabel[m][c] = index;
+            }
+        }
+        this.label = labelIndex.keySet().toArray(new String[labelIndex.size()]);
+        this.memberCount = new int[this.label.length];
+        for (int[] labels : this.memberLabel) {
+            for (int index : labels) {
+                this.memberCount[index]++;
+            }
+        }
+    }
+
+    /**
+     * @return the members of the ensemble
+     */
+    public BayesTextClassifier[] getMembers() {
+        return this.members.clone();
+    }
+
+    /**
+     * Scores the documents of all members with the Vector API or
+     * with scalar code, see BayesTextClassifier.setVectorized
+     *
+     * @param vectorized true to score with the Vector API
+     */
+    public void setVectorized(boolean vectorized) {
+        for (BayesTextClassifier member : this.members) {
+            member.setVectorized(vectorized);
+        }
+    }
+
+    @Override
+    public String classify(Document document) {
+        return this.classifyAll(Collections.singletonList(document), null)[0];
+    }
+
+    /**
+     * Classifies all documents, see classify. With a pool the
+     * documents are splitted into parts which are classified in
+     * parallel.
+     *
+     * @param documents the documents which will be classified
+     * @param pool the pool to run on, null for the calling thread
+     * @return the labels of the documents in the order of the documents
+     */
+    @Override
+    public String[] classifyAll(final List<Document> documents, ForkJoinPool pool) {
+        final String[] result = new String[documents.size()];
+        ParallelLoop.forRange(pool, 0, documents.size(), Math.max(64, ParallelLoop.grain(pool, documents.size())), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                int[] votes = new int[label.length];
+                double[] sums = new double[label.length];
+                double[] scores = new double[label.length];
+                for (int j = from; j < to; j++) {
+                    result[j] = vote(documents.get(j), votes, sums, scores);
+                }
+            }
+        });
+        return result;
+    }
+
+    private String vote(Document document, int[] votes, double[] sums, double[] scores) {
+        Arrays.fill(votes, 0);
+        Arrays.fill(sums, 0.);
+        for (int m = 0; m < this.members.length; m++) {
+            int c = this.members[m].score(document, scores);
+            int[] labels = this.memberLabel[m];
+            for (int k = 0; k < labels.length; k++) {
+                sums[labels[k]] += scores[k];
+            }
+            if (c >= 0) {
+                votes[labels[c]]++;
+            }
+        }
+        int best = -1;
+        double bestAverage = Double.MAX_VALUE;
+        for (int c = 0; c < this.label.length; c++) {
+            double average = sums[c] / this.memberCount[c];
+            boolean better;
+            if (this.voting == Voting.MAJORITY && best >= 0 && votes[c] != votes[best]) {
+                better = votes[c] > votes[best];
+            } else {
+                better = average < bestAverage;
+            }
+            if (better) {
+                best = c;
+                bestAverage = average;
+            }
+        }
+        return best < 0 ? "" : this.label[best];
+    }
+}
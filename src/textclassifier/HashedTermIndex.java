@@ -0,0 +1,62 @@
+package textclassifier;
+
+/**
+ * Maps words to a fixed number of term ids (buckets) by hashing
+ * them, the hashing trick. No words are stored, so the memory
+ * of the documents, the statistics and the weights is bounded
+ * by the number of buckets, no matter how many distinct words
+ * the corpus has. Words sharing a bucket are counted together.
+ * The keys of n-grams are hashed into the same buckets.
+ */
+public class HashedTermIndex implements TermIndex {
+    private final int buckets;
+
+    /**
+     * @param buckets the number of term ids
+     */
+    public HashedTermIndex(int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be at least 1: " + buckets);
+        }
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int getId(String text, int start, int end) {
+        return (int) ((hash(text, start, end) >>> 1) % this.buckets);
+    }
+
+    @Override
+    public int getId(long key, int[] wordIds, int from, int n) {
+        return (int) ((key >>> 1) % this.buckets);
+    }
+
+    /**
+     * Gets the id of a word
+     * @param word the word the id is returned for
+     * @return the id of the word
+     */
+    public int getId(String word) {
+        return this.getId(word, 0, word.length());
+    }
+
+    /**
+     * @return the number of buckets, all term ids are below it
+     */
+    @Override
+    public int size() {
+        return this.buckets;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of text[start, end)
+     */
+    static long hash(String text, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
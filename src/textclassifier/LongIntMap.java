@@ -0,0 +1,81 @@
+package textclassifier;
+
+import java.util.Arrays;
+
+/**
+ * Maps long keys to non negative int values in an open addressing
+ * table of primitive arrays, without boxing the keys or values.
+ * Used for the n-gram keys of the vocabularies, see NGrams.
+ *
+ * It isn't thread-safe.
+ */
+final class LongIntMap {
+    private long[] keys;
+    // Values of the keys, -1 marks a free slot
+    private int[] values;
+    private int size;
+
+    LongIntMap() {
+        this.keys = new long[64];
+        this.values = new int[64];
+        Arrays.fill(this.values, -1);
+        this.size = 0;
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key, -1 if it isn't in the map
+     */
+    int get(long key) {
+        return this.values[this.slot(key)];
+    }
+
+    /**
+     * Adds a key or replaces its value
+     *
+     * @param key the key
+     * @param value the value, not negative
+     */
+    void put(long key, int value) {
+        int slot = this.slot(key);
+        if (this.values[slot] < 0) {
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+        if (this.size * 2 > this.keys.length) {
+            this.rehash();
+        }
+    }
+
+    /**
+     * @return the number of keys
+     */
+    int size() {
+        return this.size;
+    }
+
+    private int slot(long key) {
+        int mask = this.keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (this.values[slot] >= 0 && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] keys = this.keys;
+        int[] values = this.values;
+        this.keys = new long[keys.length * 2];
+        this.values = new int[keys.length * 2];
+        Arrays.fill(this.values, -1);
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] >= 0) {
+                int slot = this.slot(keys[i]);
+                this.keys[slot] = keys[i];
+                this.values[slot] = values[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package textclassifier;
+
+/**
+ * A view of a WordIndex which only looks the words up. Unknown
+ * words and n-grams get the id one above all ids of the index,
+ * which has no weights. Nothing is added, so the index doesn't
+ * grow with the words of the classified texts and the view can
+ * be used by many threads at once.
+ */
+final class LookupOnlyIndex implements TermIndex {
+    private final WordIndex vocabulary;
+
+    /**
+     * @param vocabulary the index the words are looked up in
+     */
+    LookupOnlyIndex(WordIndex vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Wraps a WordIndex into a view, other indices don't add
+     * anything and are returned as they are
+     *
+     * @param termIndex the index of a classifier
+     * @return an index which doesn't add words
+     */
+    static TermIndex of(TermIndex termIndex) {
+        return termIndex instanceof WordIndex ? new LookupOnlyIndex((WordIndex) termIndex) : termIndex;
+    }
+
+    @Override
+    public int getId(String text, int start, int end) {
+        int id = this.vocabulary.lookup(text, start, end);
+        return id < 0 ? this.vocabulary.size() : id;
+    }
+
+    @Override
+    public int getId(long key, int[] wordIds, int from, int n) {
+        int id = this.vocabulary.lookup(key);
+        return id < 0 ? this.vocabulary.size() : id;
+    }
+
+    @Override
+    public int size() {
+        return this.vocabulary.size() + 1;
+    }
+}
@@ -0,0 +1,439 @@
+package textclassifier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records where the time of training and classifying goes:
+ * - timers for the phases of the training and for classifying,
+ *   with a histogram of their durations
+ * - counters, like the number of classified documents or cache hits
+ * - gauges, like the number of term ids or the size of the model
+ *
+ * Metrics are disabled by default. While disabled, recording only
+ * reads one volatile flag, so the instrumented code runs at full
+ * speed. They are enabled with setEnabled or -Dmetrics=true.
+ *
+ * The recorded values can be read as Snapshot, handed to a
+ * MetricsReporter from time to time (schedule) or read through
+ * JMX as textclassifier:type=Metrics (registerMBean).
+ */
+public final class Metrics {
+    /**
+     * Timed phases
+     */
+    public enum Timer {
+        // reading a corpus file and splitting its texts into words, per window of chunks
+        READ,
+        // splitting texts into words and creating the documents
+        TOKENIZE,
+        // counting the document frequencies
+        DOCUMENT_FREQUENCY,
+        // calculating the improved counts, TF, IDF and length norm
+        TRANSFORM,
+        // summing up the improved counts per label
+        STATISTICS,
+        // sorting and writing a run of an OutOfCoreTrainer, merging its runs
+        SPILL, MERGE,
+        // removing the most frequent words and Steps 4-6 of Rennie et. al.
+        FREQUENT_WORDS, STEP_4, STEP_5, STEP_6,
+        // pruning the weights to the most discriminating terms
+        PRUNING,
+        // classifying a single document
+        CLASSIFY,
+        // classifying or scoring a list of documents
+        CLASSIFY_BATCH
+    }
+
+    /**
+     * Counted events
+     */
+    public enum Counter {
+        DOCUMENTS_CLASSIFIED,
+        CACHE_HITS,
+        CACHE_MISSES,
+        // batches and their documents classified by a ClassificationServer
+        SERVER_BATCHES,
+        SERVER_DOCUMENTS,
+        // runs and (term, label) sums written by an OutOfCoreTrainer
+        SPILLED_RUNS,
+        SPILLED_RECORDS
+    }
+
+    /**
+     * Last values of sizes
+     */
+    public enum Gauge {
+        // term ids of the statistics the last model was trained with
+        TERM_COUNT,
+        // words removed as most frequent words by the last training
+        REMOVED_WORDS,
+        // terms with weights in the last trained or loaded model
+        MODEL_TERMS,
+        // bytes of the weights of the last trained or loaded model
+        MODEL_BYTES
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("metrics");
+    private static final Histogram[] timers = new Histogram[Timer.values().length];
+    private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private static final AtomicLongArray gauges = new AtomicLongArray(Gauge.values().length);
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new Histogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Durations in nanoseconds, counted in power of two buckets
+     */
+    private static class Histogram {
+        // bucket b counts durations d with 2^b <= d + 1 < 2^(b + 1)
+        final AtomicLongArray buckets = new AtomicLongArray(64);
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            this.buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos + 1));
+            this.count.increment();
+            this.sum.add(nanos);
+            long max;
+            while ((max = this.max.get()) < nanos && !this.max.compareAndSet(max, nanos)) {
+            }
+        }
+
+        void reset() {
+            for (int b = 0; b < 64; b++) {
+                this.buckets.set(b, 0);
+            }
+            this.count.reset();
+            this.sum.reset();
+            this.max.set(0);
+        }
+    }
+
+    /**
+     * @return true if metrics are recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled true to record metrics from now on
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Starts timing a phase, see stop
+     * @return the start time, 0 if metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the duration of a phase since start. Does nothing
+     * if metrics were disabled at the start.
+     *
+     * @param timer the phase
+     * @param start the value returned by start
+     */
+    public static void stop(Timer timer, long start) {
+        if (start != 0) {
+            timers[timer.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param counter the counter which is increased
+     * @param n the number of events
+     */
+    public static void count(Counter counter, long n) {
+        if (enabled) {
+            counters[counter.ordinal()].add(n);
+        }
+    }
+
+    /**
+     * @param gauge the gauge which is set
+     * @param value the current value
+     */
+    public static void set(Gauge gauge, long value) {
+        if (enabled) {
+            gauges.set(gauge.ordinal(), value);
+        }
+    }
+
+    /**
+     * Sets all recorded values back to zero
+     */
+    public static void reset() {
+        for (Histogram timer : timers) {
+            timer.reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        for (int i = 0; i < gauges.length(); i++) {
+            gauges.set(i, 0);
+        }
+    }
+
+    /**
+     * @return the values recorded so far
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    /**
+     * Hands a snapshot to the reporter every period, on a daemon thread
+     *
+     * @param reporter the reporter
+     * @param period the time between two reports
+     * @param unit the unit of period
+     * @return the scheduled reporting, cancel it to stop
+     */
+    public static synchronized ScheduledFuture<?> schedule(final MetricsReporter reporter, long period, TimeUnit unit) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "metrics-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                reporter.report(snapshot());
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Registers the metrics as MBean textclassifier:type=Metrics
+     * at the platform MBean server, once.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("textclassifier:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("can't register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * The values recorded up to the moment it was taken
+     */
+    public static class Snapshot {
+        private final long[][] buckets = new long[timers.length][64];
+        private final long[] count = new long[timers.length];
+        private final long[] sum = new long[timers.length];
+        private final long[] max = new long[timers.length];
+        private final long[] counter = new long[counters.length];
+        private final long[] gauge = new long[gauges.length()];
+
+        Snapshot() {
+            for (int t = 0; t < timers.length; t++) {
+                for (int b = 0; b < 64; b++) {
+                    this.buckets[t][b] = timers[t].buckets.get(b);
+                }
+                this.count[t] = timers[t].count.sum();
+                this.sum[t] = timers[t].sum.sum();
+                this.max[t] = timers[t].max.get();
+            }
+            for (int c = 0; c < counters.length; c++) {
+                this.counter[c] = counters[c].sum();
+            }
+            for (int g = 0; g < this.gauge.length; g++) {
+                this.gauge[g] = gauges.get(g);
+            }
+        }
+
+        /**
+         * @param timer a phase
+         * @return how often the phase was timed
+         */
+        public long getCount(Timer timer) {
+            return this.count[timer.ordinal()];
+        }
+
+        /**
+         * @param timer a phase
+         * @return the summed up duration of the phase in nanoseconds
+         */
+        public long getTotalNanos(Timer timer) {
+            return this.sum[timer.ordinal()];
+        }
+
+        /**
+         * @param timer a phase
+         * @return the longest duration of the phase in nanoseconds
+         */
+        public long getMaxNanos(Timer timer) {
+            return this.max[timer.ordinal()];
+        }
+
+        /**
+         * Estimates a percentile of the durations of a phase. The
+         * durations are counted in power of two buckets, the upper
+         * end of the bucket is returned, so it is off by up to 2x.
+         *
+         * @param timer a phase
+         * @param percentile the percentile, 0 to 100
+         * @return the duration in nanoseconds, 0 if the phase wasn't timed
+         */
+        public long getPercentileNanos(Timer timer, double percentile) {
+            long[] buckets = this.buckets[timer.ordinal()];
+            long total = this.count[timer.ordinal()];
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int b = 0; b < 64; b++) {
+                seen += buckets[b];
+                if (seen >= rank && seen > 0) {
+                    return Math.min((2L << b) - 2, this.max[timer.ordinal()]);
+                }
+            }
+            return this.max[timer.ordinal()];
+        }
+
+        /**
+         * @param counter a counter
+         * @return the number of events
+         */
+        public long getCounter(Counter counter) {
+            return this.counter[counter.ordinal()];
+        }
+
+        /**
+         * @param gauge a gauge
+         * @return the last value set
+         */
+        public long getGauge(Gauge gauge) {
+            return this.gauge[gauge.ordinal()];
+        }
+
+        /**
+         * @return the classified documents per second of time spent classifying
+         */
+        public double getDocumentsPerSecond() {
+            long nanos = this.getTotalNanos(Timer.CLASSIFY) + this.getTotalNanos(Timer.CLASSIFY_BATCH);
+            return nanos == 0 ? 0 : this.getCounter(Counter.DOCUMENTS_CLASSIFIED) * 1e9 / nanos;
+        }
+
+        /**
+         * @return one line per timed phase, counter and gauge
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Timer timer : Timer.values()) {
+                if (this.getCount(timer) == 0) {
+                    continue;
+                }
+                sb.append(String.format(Locale.ROOT, "%-20s %8d x %12.3f ms total, p50 %10.3f ms, p99 %10.3f ms, max %10.3f ms%n",
+                        timer, this.getCount(timer), this.getTotalNanos(timer) / 1e6,
+                        this.getPercentileNanos(timer, 50) / 1e6, this.getPercentileNanos(timer, 99) / 1e6,
+                        this.getMaxNanos(timer) / 1e6));
+            }
+            for (Counter counter : Counter.values()) {
+                sb.append(String.format(Locale.ROOT, "%-20s %d%n", counter, this.getCounter(counter)));
+            }
+            for (Gauge gauge : Gauge.values()) {
+                sb.append(String.format(Locale.ROOT, "%-20s %d%n", gauge, this.getGauge(gauge)));
+            }
+            sb.append(String.format(Locale.ROOT, "%-20s %.1f%n", "DOCUMENTS_PER_SECOND", this.getDocumentsPerSecond()));
+            return sb.toString();
+        }
+    }
+
+    private static class MBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+
+        @Override
+        public Map<String, Double> getTotalMillis() {
+            Snapshot snapshot = snapshot();
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (Timer timer : Timer.values()) {
+                values.put(timer.name(), snapshot.getTotalNanos(timer) / 1e6);
+            }
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getP99Millis() {
+            Snapshot snapshot = snapshot();
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (Timer timer : Timer.values()) {
+                values.put(timer.name(), snapshot.getPercentileNanos(timer, 99) / 1e6);
+            }
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Counter counter : Counter.values()) {
+                values.put(counter.name(), snapshot.getCounter(counter));
+            }
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Gauge gauge : Gauge.values()) {
+                values.put(gauge.name(), snapshot.getGauge(gauge));
+            }
+            return values;
+        }
+
+        @Override
+        public double getDocumentsPerSecond() {
+            return snapshot().getDocumentsPerSecond();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package textclassifier;
+
+import java.util.Map;
+
+/**
+ * JMX view of the Metrics, registered as textclassifier:type=Metrics
+ * by Metrics.registerMBean. The maps are keyed by the names of the
+ * timers, counters and gauges.
+ */
+public interface MetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Sets all recorded values back to zero
+     */
+    void reset();
+
+    /**
+     * @return the summed up duration of each timer in milliseconds
+     */
+    Map<String, Double> getTotalMillis();
+
+    /**
+     * @return the estimated 99th percentile of each timer in milliseconds
+     */
+    Map<String, Double> getP99Millis();
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getGauges();
+
+    /**
+     * @return the classified documents per second of time spent classifying
+     */
+    double getDocumentsPerSecond();
+}
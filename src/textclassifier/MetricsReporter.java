@@ -0,0 +1,12 @@
+package textclassifier;
+
+/**
+ * Receives the recorded metrics, see Metrics.schedule. Implementations
+ * decide where they go, e.g. a log file or a monitoring system.
+ */
+public interface MetricsReporter {
+    /**
+     * @param snapshot the values recorded so far
+     */
+    void report(Metrics.Snapshot snapshot);
+}
@@ -0,0 +1,237 @@
+package textclassifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes trained classifiers in a binary format.
+ * All numbers are little endian:
+ *
+ * int     magic "TWCN"
+ * int     version
+ * int     number of labels L
+ * int     number of term ids T
+ * int     number of hash buckets, 0 if the term ids come from a WordIndex
+ * L times int length + UTF-8 bytes of the label
+ * T times int length + UTF-8 bytes of the word with that term id,
+ *         only if the number of hash buckets is 0
+ * padding to a multiple of 8 bytes
+ * T * L   double weights, term major like in BayesTextClassifier
+ *
+ * Terms removed by pruning are left out of a model with a vocabulary,
+ * the words of the kept terms get new term ids when loaded. A hashed
+ * model keeps the bucket ids, the pruned terms have zero weights.
+ * The word of an n-gram is its words separated by spaces, the words
+ * of a kept n-gram are kept with zero weights if they were pruned,
+ * so the n-gram can be added to the vocabulary again.
+ *
+ * Loading memory maps the file and the weights are read straight
+ * from the mapping, so they are not copied onto the heap and
+ * processes loading the same file share the pages. The weights are
+ * mapped in segments of whole rows, see DirectWeights, so they may
+ * be larger than 2 GB.
+ *
+ * Version 1 files have no number of hash buckets and always
+ * contain the words, they can still be loaded.
+ */
+final class ModelFile {
+    static final int MAGIC = 0x5457434E;
+    static final int VERSION = 2;
+
+    private ModelFile() {
+    }
+
+    /**
+     * Writes the weights of a classifier
+     *
+     * @param filePath the file the model is written to
+     * @param label the labels of the classifier
+     * @param termCount the number of term ids of the weights
+     * @param row the row of each term id in weight, -1 if pruned, null if the row is the term id
+     * @param weight the weights, term major, null if direct is used
+     * @param direct the weights outside of the heap, if weight is null
+     * @param termIndex the index the term ids are taken from
+     * @throws IOException if the file can't be written
+     */
+    static void save(String filePath, String[] label, int termCount, int[] row, double[] weight, DirectWeights direct,
+                     TermIndex termIndex) throws IOException {
+        if (termCount > termIndex.size()) {
+            throw new IllegalArgumentException("the term index doesn't contain all " + termCount + " term ids");
+        }
+        WordIndex vocabulary = termIndex instanceof WordIndex ? (WordIndex) termIndex : null;
+        int buckets = vocabulary == null ? termIndex.size() : 0;
+        // pruned terms are only left out with a vocabulary
+        boolean compact = vocabulary != null && row != null;
+        boolean[] saved = compact ? savedTerms(vocabulary, termCount, row) : null;
+        int savedTermCount = termCount;
+        for (int i = 0; compact && i < termCount; i++) {
+            if (!saved[i]) {
+                savedTermCount--;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(label.length).putInt(savedTermCount).putInt(buckets);
+            long position = 20;
+            for (String l : label) {
+                position += putString(channel, buffer, l);
+            }
+            for (int i = 0; vocabulary != null && i < termCount; i++) {
+                if (!compact || saved[i]) {
+                    position += putString(channel, buffer, vocabulary.getWord(i));
+                }
+            }
+            while (position % 8 != 0) {
+                ensureRemaining(channel, buffer, 1);
+                buffer.put((byte) 0);
+                position++;
+            }
+            for (int i = 0; i < termCount; i++) {
+                int r = row == null ? i : row[i];
+                if (compact && !saved[i]) {
+                    continue;
+                }
+                for (int c = 0; c < label.length; c++) {
+                    ensureRemaining(channel, buffer, 8);
+                    buffer.putDouble(r < 0 ? 0. : weight != null ? weight[r * label.length + c] : direct.get(r, c));
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Gets the terms of a pruned model which are saved: the kept
+     * terms and the words of the kept n-grams
+     */
+    private static boolean[] savedTerms(WordIndex vocabulary, int termCount, int[] row) {
+        boolean[] saved = new boolean[termCount];
+        for (int i = 0; i < termCount; i++) {
+            saved[i] = row[i] >= 0;
+        }
+        for (int i = 0; i < termCount; i++) {
+            String word = vocabulary.getWord(i);
+            if (!saved[i] || !NGrams.isNGram(word, 0, word.length())) {
+                continue;
+            }
+            for (int start = 0, end; start <= word.length(); start = end + 1) {
+                end = word.indexOf(' ', start);
+                if (end < 0) {
+                    end = word.length();
+                }
+                saved[vocabulary.lookup(word, start, end)] = true;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Maps a model file
+     *
+     * @param filePath the file the model is read from
+     * @param termIndex an empty vocabulary the words of the model are added to,
+     *                  or a HashedTermIndex with the buckets of the model
+     * @return the classifier
+     * @throws IOException if the file can't be read or isn't a model file
+     */
+    static BayesTextClassifier load(String filePath, TermIndex termIndex) throws IOException {
+        if (termIndex instanceof WordIndex && termIndex.size() != 0) {
+            throw new IllegalArgumentException("the vocabulary must be empty");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // the labels and words must lie in the first 2 GB, the weights are mapped on their own
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException(filePath + " is no model file");
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException(filePath + " has unsupported version " + version);
+            }
+            // the rest of the header, version 1 has no number of hash buckets
+            if (buffer.remaining() < (version == 1 ? 8 : 12)) {
+                throw new IOException(filePath + " is no model file, its header is cut off");
+            }
+            int labelCount = buffer.getInt();
+            int termCount = buffer.getInt();
+            int buckets = version == 1 ? 0 : buffer.getInt();
+            if (labelCount < 0 || termCount < 0 || buckets < 0) {
+                throw new IOException(filePath + " is no model file, its header has negative counts");
+            }
+            String[] label = new String[labelCount];
+            if (buckets == 0 ? !(termIndex instanceof WordIndex)
+                    : !(termIndex instanceof HashedTermIndex) || termIndex.size() != buckets) {
+                throw new IllegalArgumentException(filePath + (buckets == 0 ? " needs a Vocabulary or OffHeapVocabulary"
+                        : " needs a HashedTermIndex with " + buckets + " buckets"));
+            }
+            for (int c = 0; c < label.length; c++) {
+                label[c] = getString(buffer, filePath);
+            }
+            for (int i = 0; buckets == 0 && i < termCount; i++) {
+                String word = getString(buffer, filePath);
+                if (termIndex.getId(word, 0, word.length()) != i) {
+                    throw new IOException(filePath + " contains the word of term id " + i + " twice");
+                }
+            }
+            long position = (buffer.position() + 7) & ~7;
+            long weightCount = (long) termCount * label.length;
+            if (channel.size() - position != weightCount * 8) {
+                throw new IOException(filePath + " has " + (channel.size() - position) + " bytes of weights, expected " + weightCount * 8);
+            }
+            DirectWeights weight = DirectWeights.map(channel, position, termCount, label.length);
+            Metrics.set(Metrics.Gauge.MODEL_TERMS, termCount);
+            Metrics.set(Metrics.Gauge.MODEL_BYTES, weightCount * 8);
+            return new BayesTextClassifier(label, termCount, weight);
+        }
+    }
+
+    private static int putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(channel, buffer, 4);
+        buffer.putInt(bytes.length);
+        for (int offset = 0; offset < bytes.length; ) {
+            ensureRemaining(channel, buffer, 1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return 4 + bytes.length;
+    }
+
+    /**
+     * Reads a label or word written by putString
+     *
+     * @throws IOException if the file ends within the string
+     */
+    private static String getString(ByteBuffer buffer, String filePath) throws IOException {
+        int length = buffer.remaining() < 4 ? -1 : buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException(filePath + " is no model file, it ends within the labels or words");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
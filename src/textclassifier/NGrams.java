@@ -0,0 +1,143 @@
+package textclassifier;
+
+/**
+ * Computes the n-gram features of a document: every run of n words
+ * next to each other, after the stop words and numbers are left out,
+ * is one term. An n-gram isn't built as String, its key is a 64 bit
+ * polynomial hash of the ids of its words. The hash is rolled over the
+ * words of the document, so every key is computed with one multiply
+ * and add. The TermIndex maps the keys to term ids, see
+ * TermIndex.getId(long, int[], int, int).
+ *
+ * Two different n-grams of the same length only share a key if their
+ * 64 bit hashes collide, which is left to chance.
+ */
+final class NGrams {
+    // multiplier of the polynomial hash
+    private static final long BASE = 0x100000001b3L;
+
+    private NGrams() {
+    }
+
+    /**
+     * @param words the number of words of a document
+     * @param ngramLength the maximal number of words of an n-gram
+     * @return the number of n-grams of 2 up to ngramLength words
+     */
+    static int count(int words, int ngramLength) {
+        int count = 0;
+        for (int n = 2; n <= ngramLength && n <= words; n++) {
+            count += words - n + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the ids of all n-grams of n words
+     *
+     * @param wordIds the ids of the words of the document in their order
+     * @param words the number of words in wordIds
+     * @param n the number of words of an n-gram, at least 2
+     * @param termIndex the index the n-gram ids are taken from
+     * @param ids receives the ids of the n-grams
+     * @param offset the index in ids of the first n-gram
+     * @return the index in ids after the last n-gram
+     */
+    static int addIds(int[] wordIds, int words, int n, TermIndex termIndex, int[] ids, int offset) {
+        if (words < n) {
+            return offset;
+        }
+        // BASE^(n - 1), the factor of the word which leaves the window
+        long power = 1;
+        for (int k = 1; k < n; k++) {
+            power *= BASE;
+        }
+        long hash = 0;
+        for (int k = 0; k < n; k++) {
+            hash = hash * BASE + wordIds[k] + 1;
+        }
+        ids[offset++] = termIndex.getId(finish(hash, n), wordIds, 0, n);
+        for (int i = 1; i + n <= words; i++) {
+            hash = (hash - (wordIds[i - 1] + 1) * power) * BASE + wordIds[i + n - 1] + 1;
+            ids[offset++] = termIndex.getId(finish(hash, n), wordIds, i, n);
+        }
+        return offset;
+    }
+
+    /**
+     * Gets the key of the n-gram wordIds[from, from + n), the same
+     * as the rolled one of addIds
+     *
+     * @param wordIds the ids of the words
+     * @param from the index of the first word of the n-gram
+     * @param n the number of words of the n-gram
+     * @return the key of the n-gram
+     */
+    static long key(int[] wordIds, int from, int n) {
+        long hash = 0;
+        for (int k = from; k < from + n; k++) {
+            hash = hash * BASE + wordIds[k] + 1;
+        }
+        return finish(hash, n);
+    }
+
+    /**
+     * Mixes in the number of words, so n-grams of different length
+     * get different keys, and spreads the bits over the whole key
+     */
+    private static long finish(long hash, int n) {
+        hash ^= n * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * @return true if text[start, end) contains a space, which separates
+     *         the words of an n-gram written as text, see WordIndex.getWord
+     */
+    static boolean isNGram(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the id of an n-gram written as its words separated by spaces,
+     * like a WordIndex writes it. This is how the n-grams of a saved
+     * model are added to a vocabulary again.
+     *
+     * @param index the index of the words and n-grams
+     * @param text the text containing the n-gram
+     * @param start index of the first character of the n-gram
+     * @param end index after the last character of the n-gram
+     * @param add true to add unknown words and n-grams, false to only look them up
+     * @return the id of the n-gram, -1 if it or one of its words is unknown and add is false
+     */
+    static int getId(WordIndex index, String text, int start, int end, boolean add) {
+        int n = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ' ') {
+                n++;
+            }
+        }
+        int[] wordIds = new int[n];
+        for (int i = start, k = 0, wordStart = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ' ') {
+                wordIds[k] = add ? index.getId(text, wordStart, i) : index.lookup(text, wordStart, i);
+                if (wordIds[k++] < 0) {
+                    return -1;
+                }
+                wordStart = i + 1;
+            }
+        }
+        long key = key(wordIds, 0, n);
+        return add ? index.getId(key, wordIds, 0, n) : index.lookup(key);
+    }
+}
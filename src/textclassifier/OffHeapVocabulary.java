@@ -0,0 +1,253 @@
+package textclassifier;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A vocabulary like Vocabulary which keeps its words and its hash
+ * table in direct buffers outside of the heap. With millions of
+ * words there are no String objects for the garbage collector to
+ * trace and the heap can stay small.
+ *
+ * The words are stored one after another as UTF-16 characters,
+ * the table is an open addressing table of (hash, id + 1) pairs,
+ * 0 marks a free slot. The ids are handed out in the order the
+ * words are seen first, starting with 0.
+ *
+ * The n-grams get their ids from the same sequence as the words,
+ * only the ids of their words are stored, also in a direct buffer.
+ * Their word is built by getWord when it is asked for. The table
+ * of their keys is a LongIntMap on the heap.
+ *
+ * Like Vocabulary it isn't thread-safe.
+ */
+public class OffHeapVocabulary implements WordIndex {
+    // Open addressing table, two ints per slot: hash of the word and id + 1
+    private IntBuffer slots;
+    private int slotCount;
+    // Index of the first character of each id in chars, size + 1 entries
+    private IntBuffer offsets;
+    // The characters of all words, n-grams have none
+    private CharBuffer chars;
+    // Index of the number of words of each n-gram id in ngramWords + 1, 0 for a word
+    private IntBuffer ngramStarts;
+    // The number of words followed by the word ids of every n-gram
+    private IntBuffer ngramWords;
+    // Number of used ints in ngramWords
+    private int ngramWordsSize;
+    // Ids of the n-grams by their key
+    private LongIntMap ngrams;
+    // Number of words in slots
+    private int wordCount;
+    // Number of distinct words and n-grams
+    private int size;
+
+    public OffHeapVocabulary() {
+        this.slotCount = 1024;
+        this.slots = allocateInts(2 * this.slotCount);
+        this.offsets = allocateInts(512);
+        this.chars = ByteBuffer.allocateDirect(8192).order(ByteOrder.nativeOrder()).asCharBuffer();
+        this.ngramStarts = allocateInts(512);
+        this.ngramWords = allocateInts(256);
+        this.ngramWordsSize = 0;
+        this.ngrams = new LongIntMap();
+        this.wordCount = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the id of a word. If the word isn't in the
+     * vocabulary yet, it is added with a new id.
+     *
+     * @param word the word the id is returned for
+     * @return the id of the word
+     */
+    public int getId(String word) {
+        return this.getId(word, 0, word.length());
+    }
+
+    @Override
+    public int getId(String text, int start, int end) {
+        int hash = Vocabulary.hash(text, start, end);
+        int slot = this.slot(hash, text, start, end);
+        int id = this.slots.get(2 * slot + 1) - 1;
+        if (id >= 0) {
+            return id;
+        }
+        if (NGrams.isNGram(text, start, end)) {
+            return NGrams.getId(this, text, start, end, true);
+        }
+        id = this.add(end - start);
+        int offset = this.offsets.get(id);
+        for (int i = start; i < end; i++) {
+            this.chars.put(offset++, text.charAt(i));
+        }
+        this.slots.put(2 * slot, hash);
+        this.slots.put(2 * slot + 1, id + 1);
+        if (++this.wordCount * 2 > this.slotCount) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    @Override
+    public int getId(long key, int[] wordIds, int from, int n) {
+        int id = this.ngrams.get(key);
+        if (id >= 0) {
+            return id;
+        }
+        id = this.add(0);
+        if (this.ngramWordsSize + n + 1 > this.ngramWords.capacity()) {
+            int capacity = Math.max(2 * this.ngramWords.capacity(), this.ngramWordsSize + n + 1);
+            this.ngramWords = copy(this.ngramWords, allocateInts(capacity), this.ngramWordsSize);
+        }
+        this.ngramStarts.put(id, this.ngramWordsSize + 1);
+        this.ngramWords.put(this.ngramWordsSize++, n);
+        this.ngramWords.put(this.ngramWordsSize, wordIds, from, n);
+        this.ngramWordsSize += n;
+        this.ngrams.put(key, id);
+        return id;
+    }
+
+    /**
+     * Hands out the next id and makes room for its word
+     * of the given length behind the other words
+     */
+    private int add(int length) {
+        int id = this.size++;
+        int offset = this.offsets.get(id);
+        if (id + 2 > this.offsets.capacity()) {
+            this.ngramStarts = copy(this.ngramStarts, allocateInts(this.offsets.capacity() * 2), id);
+            this.offsets = copy(this.offsets, allocateInts(this.offsets.capacity() * 2), id + 1);
+        }
+        if (offset + length > this.chars.capacity()) {
+            long capacity = Math.max(2L * this.chars.capacity(), (long) offset + length);
+            if (capacity > Integer.MAX_VALUE / 2) {
+                throw new IllegalStateException("the words don't fit into " + Integer.MAX_VALUE + " bytes");
+            }
+            CharBuffer chars = ByteBuffer.allocateDirect((int) capacity * 2).order(ByteOrder.nativeOrder()).asCharBuffer();
+            chars.put(0, this.chars, 0, offset);
+            this.chars = chars;
+        }
+        this.offsets.put(id + 1, offset + length);
+        return id;
+    }
+
+    /**
+     * Gets the id of a word without adding it.
+     *
+     * @param word the word the id is returned for
+     * @return the id of the word or -1 if the word is unknown
+     */
+    public int lookup(String word) {
+        return this.lookup(word, 0, word.length());
+    }
+
+    @Override
+    public int lookup(String text, int start, int end) {
+        int slot = this.slot(Vocabulary.hash(text, start, end), text, start, end);
+        int id = this.slots.get(2 * slot + 1) - 1;
+        if (id < 0 && NGrams.isNGram(text, start, end)) {
+            return NGrams.getId(this, text, start, end, false);
+        }
+        return id;
+    }
+
+    @Override
+    public int lookup(long key) {
+        return this.ngrams.get(key);
+    }
+
+    @Override
+    public String getWord(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("unknown term id: " + id);
+        }
+        int start = this.ngramStarts.get(id) - 1;
+        if (start < 0) {
+            return this.wordAt(id);
+        }
+        int end = start + 1 + this.ngramWords.get(start);
+        StringBuilder ngram = new StringBuilder(this.wordAt(this.ngramWords.get(start + 1)));
+        for (int k = start + 2; k < end; k++) {
+            ngram.append(' ').append(this.wordAt(this.ngramWords.get(k)));
+        }
+        return ngram.toString();
+    }
+
+    private String wordAt(int id) {
+        int offset = this.offsets.get(id);
+        char[] word = new char[this.offsets.get(id + 1) - offset];
+        this.chars.get(offset, word);
+        return new String(word);
+    }
+
+    /**
+     * @return the number of distinct words and n-grams
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Finds the slot of the word text[start, end), either
+     * the one containing it or the free one it belongs to.
+     */
+    private int slot(int hash, String text, int start, int end) {
+        int mask = this.slotCount - 1;
+        int slot = hash & mask;
+        while (true) {
+            int id = this.slots.get(2 * slot + 1) - 1;
+            if (id < 0 || this.slots.get(2 * slot) == hash && this.matches(id, text, start, end)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int id, String text, int start, int end) {
+        int offset = this.offsets.get(id);
+        if (this.offsets.get(id + 1) - offset != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (this.chars.get(offset++) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int slotCount = this.slotCount * 2;
+        IntBuffer slots = allocateInts(2 * slotCount);
+        int mask = slotCount - 1;
+        for (int i = 0; i < this.slotCount; i++) {
+            int id = this.slots.get(2 * i + 1);
+            if (id == 0) {
+                continue;
+            }
+            int hash = this.slots.get(2 * i);
+            int slot = hash & mask;
+            while (slots.get(2 * slot + 1) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.put(2 * slot, hash);
+            slots.put(2 * slot + 1, id);
+        }
+        this.slots = slots;
+        this.slotCount = slotCount;
+    }
+
+    private static IntBuffer allocateInts(int length) {
+        return ByteBuffer.allocateDirect(length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static IntBuffer copy(IntBuffer from, IntBuffer to, int length) {
+        to.put(0, from, 0, length);
+        return to;
+    }
+}
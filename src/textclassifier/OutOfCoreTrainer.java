@@ -0,0 +1,496 @@
+package textclassifier;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Trains a BayesTextClassifier with more documents than fit into
+ * the heap. The documents are streamed twice from a Source:
+ * - the first pass counts the document frequencies
+ * - the second pass calculates the improved counts of every document
+ *   and adds them up per (term, label) in a buffer. When the buffer
+ *   is full its sums are sorted by term and label and written to a
+ *   run file on disk.
+ * Finally the runs are merged k-way into one run, which holds every
+ * (term, label) sum once. The weights are computed from it term by
+ * term, see BayesTextClassifier.trainByTerm, which reads it two or
+ * three times. At most MAX_FAN_IN runs are open at once: with more
+ * runs, groups of consecutive runs are first merged into new runs,
+ * pass by pass, until few enough are left.
+ *
+ * The source creates the documents in both passes, so their texts
+ * are read and tokenized twice. This trades CPU time for not keeping
+ * the term ids of all documents, in memory or on disk.
+ *
+ * Only the buffer, a few arrays over the term ids and the weights
+ * which are kept are held in memory, no documents and no sums of all
+ * terms and labels. With pruning or off-heap settings the heap can be
+ * much smaller than the sums. With a Vocabulary the words are held
+ * too, an OffHeapVocabulary or HashedTermIndex keeps them out of the
+ * heap or bounded. The trained classifier has no statistics, so it
+ * can't be updated.
+ *
+ * Within a run the counts are added up in the order of the documents
+ * and the runs are merged in the order they were written. If all sums
+ * fit into the buffer, the classifier is the same as the one trained
+ * with all documents in memory. Otherwise a sum spread over several
+ * runs is added up run by run, and group by group in the passes, so
+ * it may differ in the last bits. The result only depends on the
+ * documents and the buffer size.
+ */
+public class OutOfCoreTrainer {
+    // default size of the buffer in bytes
+    public static final long BUFFER_SIZE = 64 << 20;
+    // bytes of the buffer per (term, label) sum: two slots of the
+    // hash table with a key and a sum each and a key to sort
+    private static final int BYTES_PER_SUM = 40;
+    // marks a free slot, keys are never negative
+    private static final long FREE = -1;
+    // maximal number of runs merged at once
+    static final int MAX_FAN_IN = 64;
+
+    /**
+     * The training documents, read once per pass
+     */
+    public interface Source {
+        /**
+         * Passes every training document to the consumer, in the same
+         * order in every pass. The documents aren't kept by the consumer.
+         *
+         * @param consumer receives the documents
+         * @throws IOException if the documents can't be read
+         */
+        void forEach(Consumer<Document> consumer) throws IOException;
+    }
+
+    private final long bufferSize;
+    private final Path directory;
+    private final TrainingSettings settings;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a trainer with the default transformations
+     *
+     * @param bufferSize the size of the buffer of the sums in bytes
+     * @param directory the directory the runs are written to
+     * @param pool the pool the weights are computed on, null for the calling thread
+     */
+    public OutOfCoreTrainer(long bufferSize, Path directory, ForkJoinPool pool) {
+        this(bufferSize, directory, Transform.DEFAULT, pool);
+    }
+
+    /**
+     * Creates a trainer
+     *
+     * @param bufferSize the size of the buffer of the sums in bytes
+     * @param directory the directory the runs are written to
+     * @param transform the transformations of the improved counts
+     * @param pool the pool the weights are computed on, null for the calling thread
+     */
+    public OutOfCoreTrainer(long bufferSize, Path directory, Transform transform, ForkJoinPool pool) {
+        this(bufferSize, directory, TrainingSettings.DEFAULT.withTransform(transform), pool);
+    }
+
+    /**
+     * Creates a trainer whose classifiers are trained with the given
+     * settings, the weights are computed once after the merge
+     *
+     * @param bufferSize the size of the buffer of the sums in bytes
+     * @param directory the directory the runs are written to
+     * @param settings the transformations, word threshold, term count and off-heap setting
+     * @param pool the pool the weights are computed on, null for the calling thread
+     */
+    public OutOfCoreTrainer(long bufferSize, Path directory, TrainingSettings settings, ForkJoinPool pool) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize must be at least 1024 bytes: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.directory = directory;
+        this.settings = settings;
+        this.pool = pool;
+    }
+
+    /**
+     * Trains a classifier with the documents of the source. The
+     * runs are deleted afterwards, also if the training fails.
+     *
+     * @param source the training documents
+     * @return the trained classifier
+     * @throws IOException if the documents can't be read or the runs can't be written
+     */
+    public BayesTextClassifier train(Source source) throws IOException {
+        long start = Metrics.start();
+        final CorpusStatistics corpusStatistics = new CorpusStatistics();
+        final int[] termCount = new int[1];
+        source.forEach(new Consumer<Document>() {
+            @Override
+            public void accept(Document document) {
+                corpusStatistics.add(document);
+                int[] termIds = document.getTermIds();
+                if (termIds.length > 0) {
+                    termCount[0] = Math.max(termCount[0], termIds[termIds.length - 1] + 1);
+                }
+            }
+        });
+        Metrics.stop(Metrics.Timer.DOCUMENT_FREQUENCY, start);
+
+        final Spiller spiller = new Spiller(corpusStatistics);
+        try {
+            try {
+                source.forEach(spiller);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            final String[] labels = spiller.labels.toArray(new String[spiller.labels.size()]);
+            BayesTextClassifier.TermTotals totals;
+            if (spiller.runs.isEmpty()) {
+                // everything fit into the buffer, the sums are read from it
+                totals = new BayesTextClassifier.TermTotals() {
+                    @Override
+                    public void forEach(BayesTextClassifier.TermConsumer consumer) throws IOException {
+                        TermRows rows = new TermRows(labels.length, consumer);
+                        spiller.forEachSum(rows);
+                        rows.finish();
+                    }
+                };
+            } else {
+                spiller.spill();
+                start = Metrics.start();
+                List<Path> runs = new ArrayList<>(spiller.runs);
+                while (runs.size() > 1) {
+                    runs = this.mergePass(runs, spiller.runs);
+                }
+                Metrics.stop(Metrics.Timer.MERGE, start);
+                final Path run = runs.get(0);
+                final int readBuffer = (int) Math.min(1 << 20, Math.max(4096, this.bufferSize));
+                totals = new BayesTextClassifier.TermTotals() {
+                    @Override
+                    public void forEach(BayesTextClassifier.TermConsumer consumer) throws IOException {
+                        TermRows rows = new TermRows(labels.length, consumer);
+                        RunReader reader = new RunReader(0, run, readBuffer);
+                        try {
+                            while (reader.next()) {
+                                rows.add(reader.key, reader.sum);
+                            }
+                        } finally {
+                            reader.in.close();
+                        }
+                        rows.finish();
+                    }
+                };
+            }
+            return BayesTextClassifier.trainByTerm(labels, corpusStatistics, termCount[0], totals, this.settings, this.pool);
+        } finally {
+            for (Path run : spiller.runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Combines a label index and a term id to a key, the keys
+     * are ordered by term id first and label index second
+     */
+    private static long key(int termId, int c) {
+        return (long) termId << 32 | c;
+    }
+
+    /**
+     * Adds up the improved counts of the documents per (term, label)
+     * in an open addressing table and writes the sorted sums to a
+     * new run whenever the table is full
+     */
+    private class Spiller implements Consumer<Document> {
+        final CorpusStatistics corpusStatistics;
+        // Stores for each label its index, the labels in the order of their index
+        final Map<String, Integer> labelIndex = new HashMap<>();
+        final ArrayList<String> labels = new ArrayList<>();
+        final long[] keys;
+        final double[] sums;
+        // maximal number of sums in the table, half of its slots
+        final int capacity;
+        int size;
+        final ArrayList<Path> runs = new ArrayList<>();
+
+        Spiller(CorpusStatistics corpusStatistics) {
+            this.corpusStatistics = corpusStatistics;
+            long sums = Math.max(16, bufferSize / BYTES_PER_SUM);
+            int slots = Integer.highestOneBit((int) Math.min(1 << 30, 2 * sums));
+            this.keys = new long[slots];
+            this.sums = new double[slots];
+            this.capacity = slots / 2;
+            Arrays.fill(this.keys, FREE);
+        }
+
+        @Override
+        public void accept(Document document) {
+            int c = this.getOrAddLabel(document.getLabel());
+            document.calculateImprovedCounts(this.corpusStatistics, settings.getTransform());
+            int[] termIds = document.getTermIds();
+            double[] improvedCounts = document.getImprovedCounts();
+            for (int k = 0; k < termIds.length; k++) {
+                this.add(key(termIds[k], c), improvedCounts[k]);
+            }
+        }
+
+        private int getOrAddLabel(String label) {
+            Integer c = this.labelIndex.get(label);
+            if (c == null) {
+                c = this.labels.size();
+                this.labelIndex.put(label, c);
+                this.labels.add(label);
+            }
+            return c;
+        }
+
+        private void add(long key, double value) {
+            int slot = this.slot(key);
+            if (this.keys[slot] == FREE) {
+                if (this.size == this.capacity) {
+                    this.spill();
+                    slot = this.slot(key);
+                }
+                this.keys[slot] = key;
+                this.size++;
+            }
+            this.sums[slot] += value;
+        }
+
+        private int slot(long key) {
+            int mask = this.keys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 33) & mask;
+            while (this.keys[slot] != FREE && this.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * @return the keys in the table, sorted
+         */
+        private long[] sortedKeys() {
+            long[] sorted = new long[this.size];
+            for (int slot = 0, n = 0; slot < this.keys.length; slot++) {
+                if (this.keys[slot] != FREE) {
+                    sorted[n++] = this.keys[slot];
+                }
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * Writes the sums as a new run and empties the table. A run
+         * is the number of sums followed by the sorted keys and sums.
+         */
+        void spill() {
+            long start = Metrics.start();
+            long[] sorted = this.sortedKeys();
+            try {
+                Path run = Files.createTempFile(directory, "textclassifier-run", ".bin");
+                this.runs.add(run);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+                    out.writeInt(sorted.length);
+                    for (long key : sorted) {
+                        out.writeLong(key);
+                        out.writeDouble(this.sums[this.slot(key)]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Arrays.fill(this.keys, FREE);
+            Arrays.fill(this.sums, 0.);
+            this.size = 0;
+            Metrics.count(Metrics.Counter.SPILLED_RUNS, 1);
+            Metrics.count(Metrics.Counter.SPILLED_RECORDS, sorted.length);
+            Metrics.stop(Metrics.Timer.SPILL, start);
+        }
+
+        /**
+         * Passes the sums in the table in the order of their keys
+         */
+        void forEachSum(Sink sink) throws IOException {
+            for (long key : this.sortedKeys()) {
+                sink.add(key, this.sums[this.slot(key)]);
+            }
+        }
+    }
+
+    /**
+     * Reads the sums of a run in order
+     */
+    private static class RunReader implements Comparable<RunReader> {
+        final int index;
+        final DataInputStream in;
+        int remaining;
+        long key;
+        double sum;
+
+        RunReader(int index, Path run, int bufferSize) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), bufferSize));
+            this.remaining = this.in.readInt();
+        }
+
+        /**
+         * @return false if the run has no more sums
+         */
+        boolean next() throws IOException {
+            if (this.remaining == 0) {
+                return false;
+            }
+            this.remaining--;
+            this.key = this.in.readLong();
+            this.sum = this.in.readDouble();
+            return true;
+        }
+
+        /**
+         * Orders by key, equal keys in the order of the runs
+         */
+        @Override
+        public int compareTo(RunReader other) {
+            int result = Long.compare(this.key, other.key);
+            return result != 0 ? result : Integer.compare(this.index, other.index);
+        }
+    }
+
+    /**
+     * Receives the merged sums in the order of their keys
+     */
+    private interface Sink {
+        void add(long key, double sum) throws IOException;
+    }
+
+    /**
+     * Gathers the sums of a term, which arrive in the order of their
+     * keys, and passes them on together, indexed by label
+     */
+    private static class TermRows implements Sink {
+        final double[] totals;
+        final BayesTextClassifier.TermConsumer consumer;
+        int termId = -1;
+
+        TermRows(int labelCount, BayesTextClassifier.TermConsumer consumer) {
+            this.totals = new double[labelCount];
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void add(long key, double sum) {
+            int termId = (int) (key >>> 32);
+            if (termId != this.termId) {
+                this.finish();
+                this.termId = termId;
+            }
+            this.totals[(int) key] = sum;
+        }
+
+        /**
+         * Passes on the sums of the last term
+         */
+        void finish() {
+            if (this.termId >= 0) {
+                this.consumer.accept(this.termId, this.totals);
+                Arrays.fill(this.totals, 0.);
+                this.termId = -1;
+            }
+        }
+    }
+
+    /**
+     * Merges groups of MAX_FAN_IN consecutive runs into new runs, which
+     * replace the group in the order of the runs. The merged runs are
+     * deleted, the new runs are added to created, so they are deleted
+     * when the training ends.
+     *
+     * @param runs the runs in the order they were written
+     * @param created the runs to delete at the end
+     * @return the runs of the next pass
+     */
+    private List<Path> mergePass(List<Path> runs, List<Path> created) throws IOException {
+        ArrayList<Path> next = new ArrayList<>();
+        for (int first = 0; first < runs.size(); first += MAX_FAN_IN) {
+            List<Path> group = runs.subList(first, Math.min(first + MAX_FAN_IN, runs.size()));
+            if (group.size() == 1) {
+                next.add(group.get(0));
+                continue;
+            }
+            Path run = Files.createTempFile(this.directory, "textclassifier-run", ".bin");
+            created.add(run);
+            next.add(run);
+            final int[] count = new int[1];
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+                // the number of sums is written when it is known
+                out.writeInt(0);
+                merge(group, this.bufferSize, new Sink() {
+                    @Override
+                    public void add(long key, double sum) throws IOException {
+                        out.writeLong(key);
+                        out.writeDouble(sum);
+                        count[0]++;
+                    }
+                });
+            }
+            try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(4).putInt(count[0]);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+            for (Path merged : group) {
+                Files.deleteIfExists(merged);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Merges the runs, the sums of equal keys are added up in the
+     * order of the runs and passed on once. The reading buffers of
+     * the runs share the size of the buffer.
+     */
+    private static void merge(List<Path> runs, long bufferSize, Sink sink) throws IOException {
+        int readBuffer = (int) Math.min(1 << 20, Math.max(4096, bufferSize / runs.size()));
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size());
+        ArrayList<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(i, runs.get(i), readBuffer);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                double sum = reader.sum;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    reader = queue.poll();
+                    sum += reader.sum;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+                sink.add(key, sum);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package textclassifier;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over an index range on a fork/join pool. The
+ * range is split in halves until the parts are smaller than
+ * the grain size, every part is handed to the body once.
+ *
+ * Without a pool the body is called once for the whole range
+ * in the calling thread, that is the sequential path.
+ */
+final class ParallelLoop {
+    /**
+     * The body of the loop, called for a part [from, to) of the range
+     */
+    interface Body {
+        void run(int from, int to);
+    }
+
+    private ParallelLoop() {
+    }
+
+    /**
+     * Runs the body for all indices in [from, to)
+     *
+     * @param pool the pool to run on, null for the calling thread
+     * @param from first index
+     * @param to index after the last one
+     * @param grain the parts are not split below this size
+     * @param body the body of the loop
+     */
+    static void forRange(ForkJoinPool pool, int from, int to, int grain, Body body) {
+        if (from >= to) {
+            return;
+        }
+        if (pool == null || to - from <= grain) {
+            body.run(from, to);
+            return;
+        }
+        pool.invoke(new RangeAction(from, to, Math.max(1, grain), body));
+    }
+
+    /**
+     * Gets a grain size so the range is split into about
+     * four parts per thread of the pool.
+     *
+     * @param pool the pool the loop runs on, may be null
+     * @param size the size of the range
+     * @return the grain size
+     */
+    static int grain(ForkJoinPool pool, int size) {
+        if (pool == null) {
+            return Math.max(1, size);
+        }
+        return Math.max(1, size / (4 * pool.getParallelism()));
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final Body body;
+
+        RangeAction(int from, int to, int grain, Body body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.grain) {
+                this.body.run(this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new RangeAction(this.from, middle, this.grain, this.body),
+                    new RangeAction(middle, this.to, this.grain, this.body));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package textclassifier;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the training of the BayesTextClassifier on multiple
+ * cores using a fork/join pool:
+ * - splitting the texts into words, in parallel over the documents
+ * - counting the document frequencies, per thread and merged afterwards
+ * - calculating the improved counts, in parallel over the documents
+ * - summing up the counts per label, in parallel over the term ids
+ * - Steps 4-6 of Rennie et. al., in parallel over the labels
+ *
+ * The words are looked up in the vocabulary in the order of the
+ * documents and all sums are added up in the same order as in the
+ * sequential path, so the weights are identical to the ones of
+ * new BayesTextClassifier(documents).
+ */
+public class ParallelTrainer {
+    private ForkJoinPool pool;
+    private Tokenizer tokenizer;
+
+    /**
+     * Creates a trainer using the given number of threads.
+     * With a parallelism of 1 everything runs in the calling thread.
+     *
+     * @param parallelism the number of threads
+     */
+    public ParallelTrainer(int parallelism) {
+        this(parallelism, Tokenizer.getDefault());
+    }
+
+    /**
+     * Creates a trainer using the given number of threads and tokenizer.
+     * With a parallelism of 1 everything runs in the calling thread.
+     *
+     * @param parallelism the number of threads
+     * @param tokenizer the tokenizer the texts are splitted with
+     */
+    public ParallelTrainer(int parallelism, Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * @return the pool the trainer runs on, null if it runs in the calling thread
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * @return the tokenizer the texts are splitted with
+     */
+    public Tokenizer getTokenizer() {
+        return this.tokenizer;
+    }
+
+    /**
+     * Creates the documents for the given texts. The texts are splitted
+     * into words in parallel, the word ids are taken from the index
+     * in the order of the texts.
+     *
+     * @param texts the texts of the documents
+     * @param labels the labels of the documents, parallel to texts
+     * @param termIndex the index the word ids are taken from
+     * @return the documents in the order of the texts
+     */
+    public ArrayList<Document> createDocuments(final List<String> texts, List<String> labels, TermIndex termIndex) {
+        long start = Metrics.start();
+        final int[][] tokens = new int[texts.size()][];
+        ParallelLoop.forRange(this.pool, 0, texts.size(), ParallelLoop.grain(this.pool, texts.size()), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    tokens[j] = tokenizer.tokenize(texts.get(j));
+                }
+            }
+        });
+        ArrayList<Document> documents = new ArrayList<>(texts.size());
+        for (int j = 0; j < texts.size(); j++) {
+            documents.add(new Document(texts.get(j), tokens[j], this.tokenizer.getNGramLength(), labels.get(j), termIndex));
+        }
+        Metrics.stop(Metrics.Timer.TOKENIZE, start);
+        return documents;
+    }
+
+    /**
+     * Builds the document frequencies of the training documents and
+     * calculates their improved counts.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     * @return the corpus statistics of the documents
+     */
+    public CorpusStatistics calculateImprovedCounts(List<Document> trainingDocuments) {
+        return this.calculateImprovedCounts(trainingDocuments, Transform.DEFAULT);
+    }
+
+    /**
+     * Builds the document frequencies of the training documents and
+     * calculates their improved counts with the given transformations.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     * @param transform the transformations of the improved counts
+     * @return the corpus statistics of the documents
+     */
+    public CorpusStatistics calculateImprovedCounts(final List<Document> trainingDocuments, final Transform transform) {
+        long start = Metrics.start();
+        final CorpusStatistics corpusStatistics = new CorpusStatistics(trainingDocuments, this.pool);
+        Metrics.stop(Metrics.Timer.DOCUMENT_FREQUENCY, start);
+        start = Metrics.start();
+        ParallelLoop.forRange(this.pool, 0, trainingDocuments.size(), ParallelLoop.grain(this.pool, trainingDocuments.size()), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    trainingDocuments.get(j).calculateImprovedCounts(corpusStatistics, transform);
+                }
+            }
+        });
+        Metrics.stop(Metrics.Timer.TRANSFORM, start);
+        return corpusStatistics;
+    }
+
+    /**
+     * Trains a classifier with documents whose improved counts
+     * are already calculated.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     * @return the trained classifier
+     */
+    public BayesTextClassifier train(List<Document> trainingDocuments) {
+        return this.train(trainingDocuments, Transform.DEFAULT);
+    }
+
+    /**
+     * Trains a classifier with documents whose improved counts are
+     * already calculated with the given transformations, documents
+     * added by update are transformed the same way.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     * @param transform the transformations of the improved counts
+     * @return the trained classifier
+     */
+    public BayesTextClassifier train(List<Document> trainingDocuments, Transform transform) {
+        ClassStatistics statistics = new ClassStatistics(transform);
+        statistics.addAll(trainingDocuments, this.pool);
+        return new BayesTextClassifier(statistics, this.pool);
+    }
+
+    /**
+     * Trains a classifier with documents whose improved counts are
+     * already calculated with the transformations of the settings.
+     * The other settings are applied before the weights are computed,
+     * so they are computed only once.
+     *
+     * @param trainingDocuments the documents the classifier will train with
+     * @param settings the settings of the classifier
+     * @return the trained classifier
+     */
+    public BayesTextClassifier train(List<Document> trainingDocuments, TrainingSettings settings) {
+        ClassStatistics statistics = new ClassStatistics(settings.getTransform());
+        statistics.addAll(trainingDocuments, this.pool);
+        return new BayesTextClassifier(statistics, this.pool, settings);
+    }
+}
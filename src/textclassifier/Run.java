@@ -0,0 +1,623 @@
+package textclassifier;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author Dennis Meyer, Sebastian Brodehl
+ * machine learning summer term 2014
+ */
+public class Run {
+    private final static boolean DEBUG = false;
+    private final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static ArrayList<Document> trainDocuments = new ArrayList<>();
+    private static ArrayList<Document> testDocuments = new ArrayList<>();
+    // with -Dbuckets=n the words are hashed into n term ids instead of kept in a vocabulary
+    private final static int HASH_BUCKETS = Integer.getInteger("buckets", 0);
+    // with -DmaxTerms=n the weights are pruned to the n most discriminating terms
+    private final static int MAX_TERMS = Integer.getInteger("maxTerms", 0);
+    // with -DmaxModelSize=n the weights are pruned to at most n bytes
+    private final static long MAX_MODEL_SIZE = Long.getLong("maxModelSize", 0);
+    // with -DoffHeap=true the vocabulary and the trained weights are kept outside of the heap
+    private final static boolean OFF_HEAP = Boolean.getBoolean("offHeap");
+    private static TermIndex termIndex = HASH_BUCKETS > 0 ? new HashedTermIndex(HASH_BUCKETS)
+            : OFF_HEAP ? new OffHeapVocabulary() : new Vocabulary();
+    private final static String STOPWORDS = "data/stopwords";
+    // with -Dmembers=n an ensemble of n classifiers is trained, see EnsembleClassifier
+    private final static int MEMBERS = Integer.getInteger("members", 0);
+    // -Dvoting=majority or -Dvoting=average, how the members vote
+    private final static String VOTING = System.getProperty("voting", "majority");
+    // with -Dvectorized=true documents are scored with the Vector API, needs --add-modules jdk.incubator.vector
+    private final static boolean VECTORIZED = Boolean.getBoolean("vectorized");
+    // -Dtf=false, -Didf=false or -Dln=false disable the transformations of the improved counts
+    private final static Transform TRANSFORM = new Transform(Boolean.parseBoolean(System.getProperty("tf", "true")),
+            Boolean.parseBoolean(System.getProperty("idf", "true")), Boolean.parseBoolean(System.getProperty("ln", "true")));
+    // with -DwordThreshold=x the words above x times the highest count are removed
+    private final static double WORD_THRESHOLD = Double.parseDouble(System.getProperty("wordThreshold", ".1"));
+    // the settings every classifier is trained with, the weights are computed once with them
+    private final static TrainingSettings SETTINGS = TrainingSettings.DEFAULT.withTransform(TRANSFORM)
+            .withWordThreshold(WORD_THRESHOLD).withMaxTermCount(MAX_TERMS).withMaxModelSize(MAX_MODEL_SIZE)
+            .withOffHeap(OFF_HEAP);
+    // with -DcacheSize=n the server caches the results of n texts, see ClassificationCache
+    private final static int CACHE_SIZE = Integer.getInteger("cacheSize", 0);
+    // with -DtrainBuffer=n the classifier is trained out of core with a buffer of n bytes, see OutOfCoreTrainer
+    private final static long TRAIN_BUFFER = Long.getLong("trainBuffer", 0);
+    // with -Dngrams=n the n-grams of up to n words are terms as well, see NGrams
+    private final static int NGRAMS = Integer.getInteger("ngrams", 1);
+    // seed of the training/test split and of the cross validation folds, -Dseed=n
+    private final static long SEED = Long.getLong("seed", 42);
+    private static ParallelTrainer trainer;
+
+    /**
+     * This method only handles the file reading/writing
+     * constructs a new classifier and tests him
+     * also classifies unclassified documents
+     *
+     * With "--save model" the trained classifier is saved to the
+     * file model, with "--load model" the classifier is loaded from
+     * it and only the unclassified documents are classified.
+     *
+     * With "--serve model port" the classifier is loaded from the
+     * file model and served on the local port until the process is
+     * stopped, see ClassificationServer. With -DcacheSize=n the server
+     * caches the results of the last n texts. With "--connect port" the
+     * unclassified documents are classified by that server.
+     *
+     * With "--cross-validate k" the training documents are evaluated
+     * with k-fold cross validation, see CrossValidation. The folds and
+     * the training/test split are seeded with -Dseed=n.
+     *
+     * With -Dmembers=n an ensemble of n classifiers trained with
+     * bootstrap samples is used instead of a single one, the members
+     * vote by -Dvoting=majority or -Dvoting=average. The members are
+     * trained with the same settings as a single classifier, an
+     * ensemble can't be saved, loaded, served, cross validated, swept
+     * or trained out of core.
+     *
+     * With -Dvectorized=true the documents are scored with the Vector
+     * API, the JVM has to be started with --add-modules jdk.incubator.vector.
+     *
+     * With -Dmetrics=true the durations of the phases and the other
+     * Metrics are recorded, printed at the end (every minute while
+     * serving) and exported through JMX.
+     *
+     * With -Dbuckets=n the words are hashed into n buckets, see
+     * HashedTermIndex, a model saved so has to be loaded with the
+     * same -Dbuckets. With -DmaxTerms=n only the weights of the n
+     * terms discriminating most between the labels are kept,
+     * -DmaxModelSize=n keeps at most n bytes of weights.
+     *
+     * With -Dtf=false, -Didf=false or -Dln=false the transformations
+     * of the improved counts are disabled, -DwordThreshold=x sets the
+     * threshold of the frequent words. With "--sweep" the classifier
+     * is trained and tested with all combinations of them and some
+     * thresholds, see TransformPipeline.
+     *
+     * With -Dngrams=n the n-grams of up to n words next to each other
+     * are terms too, models trained so need the same -Dngrams.
+     *
+     * With -DtrainBuffer=n the training documents aren't held in memory,
+     * the classifier is trained by an OutOfCoreTrainer with a buffer of
+     * n bytes and the test documents are streamed as well.
+     *
+     * With -DoffHeap=true the words are kept in an OffHeapVocabulary
+     * and the trained weights in a direct buffer, see setOffHeap.
+     *
+     * @param argv some args
+     */
+    public static void main(String[] argv) {
+        Tokenizer tokenizer;
+        try {
+            tokenizer = Tokenizer.fromStopwordFile(STOPWORDS);
+        } catch (IOException e) {
+            System.out.println("Can't read " + STOPWORDS + ", using the built in stop words.");
+            tokenizer = Tokenizer.getDefault();
+        }
+        tokenizer = tokenizer.withNGramLength(NGRAMS);
+        trainer = new ParallelTrainer(PARALLELISM, tokenizer);
+        if (Metrics.isEnabled()) {
+            Metrics.registerMBean();
+        }
+
+        if (MEMBERS > 0 && (argv.length > 0 || TRAIN_BUFFER > 0)) {
+            System.out.println("An ensemble of -Dmembers=" + MEMBERS + " can only be trained and tested in memory, "
+                    + "without " + (argv.length > 0 ? argv[0] : "-DtrainBuffer") + ".");
+            return;
+        }
+        // checked before the documents are read
+        EnsembleClassifier.Voting voting = MEMBERS > 0 ? parseVoting(VOTING) : null;
+        if (MEMBERS > 0 && voting == null) {
+            System.out.println("Unknown -Dvoting=" + VOTING + ", the members vote by one of "
+                    + Arrays.toString(EnsembleClassifier.Voting.values()) + ".");
+            return;
+        }
+
+        if (argv.length == 2 && argv[0].equals("--connect")) {
+            System.out.println("Classifying unknown data on port " + argv[1] + "...");
+            classifyDocuments(Integer.parseInt(argv[1]), "data/tst.txt", "data/tst_classification_" + System.currentTimeMillis()/1000 + ".txt");
+            System.out.println("done!");
+            return;
+        }
+
+        if (argv.length == 3 && argv[0].equals("--serve")) {
+            try {
+                BayesTextClassifier bayesTextClassifier = BayesTextClassifier.load(argv[1], termIndex);
+                bayesTextClassifier.setVectorized(VECTORIZED);
+                ClassificationServer server = new ClassificationServer(bayesTextClassifier, tokenizer, termIndex,
+                        Integer.parseInt(argv[2]), trainer.getPool(), ClassificationServer.MAX_BATCH_SIZE, CACHE_SIZE);
+                System.out.println("Serving " + argv[1] + " on port " + server.getPort());
+                if (Metrics.isEnabled()) {
+                    Metrics.schedule(new MetricsReporter() {
+                        @Override
+                        public void report(Metrics.Snapshot snapshot) {
+                            System.out.print(snapshot);
+                        }
+                    }, 1, TimeUnit.MINUTES);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            // the server threads are daemons, so the main thread waits for ever
+            while (true) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        if (argv.length == 2 && argv[0].equals("--load")) {
+            long startTime = System.currentTimeMillis();
+            System.out.print("Loading classifier from " + argv[1] + "...");
+            BayesTextClassifier bayesTextClassifier;
+            try {
+                bayesTextClassifier = BayesTextClassifier.load(argv[1], termIndex);
+                bayesTextClassifier.setVectorized(VECTORIZED);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            System.out.print("done!\n");
+            System.out.println((System.currentTimeMillis() - startTime) + "ms");
+            System.out.println("Classifying unknown data...");
+            classifyDocuments(bayesTextClassifier, "data/tst.txt", "data/tst_classification_" + System.currentTimeMillis()/1000 + ".txt");
+            System.out.println("done!");
+            reportMetrics();
+            return;
+        }
+
+        if (TRAIN_BUFFER > 0) {
+            trainOutOfCore(argv);
+            reportMetrics();
+            return;
+        }
+
+        boolean crossValidate = argv.length == 2 && argv[0].equals("--cross-validate");
+        System.out.print("Reading and creating documents...");
+        // a cross validation trains with the test documents as well
+        createDocuments("data/trg.txt", crossValidate);
+        System.out.print("done!\n");
+
+        if (crossValidate) {
+            ArrayList<Document> documents = new ArrayList<>(trainDocuments);
+            documents.addAll(testDocuments);
+            System.out.println("Cross validating " + documents.size() + " documents with " + argv[1] + " folds...");
+            CrossValidation.Result result = new CrossValidation(trainer, SETTINGS, Integer.parseInt(argv[1]), SEED).evaluate(documents);
+            for (int f = 0; f < result.getFoldCount(); f++) {
+                System.out.println("fold " + f + ": " + result.getAccuracy(f) + " correct labeled documents, " + result.getTime(f) + "ms");
+            }
+            System.out.println("mean: " + result.getMeanAccuracy() + " +- " + result.getAccuracyDeviation()
+                    + " correct labeled documents, " + result.getSharedTime() + "ms shared, " + result.getTotalTime() + "ms total");
+            reportMetrics();
+            return;
+        }
+
+        System.out.println("We got " + trainDocuments.size() + " training sets and " + testDocuments.size() + " test sets.");
+
+        if (argv.length == 1 && argv[0].equals("--sweep")) {
+            sweep();
+            reportMetrics();
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        System.out.print("Calculating improved counts for documents...");
+        trainer.calculateImprovedCounts(trainDocuments, TRANSFORM);
+        System.out.print("done!\n");
+        long endTime = System.currentTimeMillis();
+        System.out.println((endTime - startTime) + "ms");
+
+        Classifier classifier;
+        if (MEMBERS > 0) {
+            EnsembleClassifier ensembleClassifier = new EnsembleClassifier(trainDocuments, SETTINGS, MEMBERS, SEED,
+                    voting, trainer.getPool());
+            ensembleClassifier.setVectorized(VECTORIZED);
+            classifier = ensembleClassifier;
+        } else {
+            BayesTextClassifier bayesTextClassifier = trainer.train(trainDocuments, SETTINGS);
+            bayesTextClassifier.setVectorized(VECTORIZED);
+            if (argv.length == 2 && argv[0].equals("--save")) {
+                try {
+                    bayesTextClassifier.save(argv[1], termIndex);
+                    System.out.println("Saved classifier to " + argv[1]);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            classifier = bayesTextClassifier;
+        }
+
+        int countCorrect = 0;
+        startTime = System.currentTimeMillis();
+        System.out.println("Testing documents...");
+        String[] testLabels = classifier.classifyAll(testDocuments, trainer.getPool());
+        for (int j = 0; j < testDocuments.size(); j++) {
+            if (testLabels[j].equals(testDocuments.get(j).getLabel())) {
+                countCorrect++;
+            }
+        }
+        System.out.print("done!\n");
+        endTime = System.currentTimeMillis();
+        System.out.println((endTime - startTime) + "ms");
+        System.out.println(countCorrect*1.0 / testDocuments.size() + " correct labeled documents.");
+
+        System.out.println("Classifying unknown data...");
+        classifyDocuments(classifier, "data/tst.txt", "data/tst_classification_" + System.currentTimeMillis()/1000 + ".txt");
+        System.out.println("done!");
+        reportMetrics();
+    }
+
+    /**
+     * Trains and tests the classifier with all combinations of the
+     * transformations and some word thresholds. The threshold changes
+     * most often, so mostly only the weights are computed again.
+     */
+    private static void sweep() {
+        double[] thresholds = {.05, .1, .2, .5, 1.};
+        TransformPipeline pipeline = new TransformPipeline(trainer, trainDocuments);
+        pipeline.setMaxTermCount(MAX_TERMS);
+        for (int t = 0; t < 8; t++) {
+            pipeline.setTransform(new Transform((t & 4) == 0, (t & 2) == 0, (t & 1) == 0));
+            for (double threshold : thresholds) {
+                long startTime = System.currentTimeMillis();
+                pipeline.setWordThreshold(threshold);
+                String[] testLabels = pipeline.getClassifier().classifyAll(testDocuments, trainer.getPool());
+                int countCorrect = 0;
+                for (int j = 0; j < testDocuments.size(); j++) {
+                    if (testLabels[j].equals(testDocuments.get(j).getLabel())) {
+                        countCorrect++;
+                    }
+                }
+                System.out.println(pipeline.getTransform() + " wordThreshold=" + threshold + ": "
+                        + countCorrect*1.0 / testDocuments.size() + " correct labeled documents, "
+                        + (System.currentTimeMillis() - startTime) + "ms");
+            }
+        }
+    }
+
+    /**
+     * Trains the classifier with an OutOfCoreTrainer, the training and
+     * test documents are streamed from the file instead of held in memory.
+     * With "--save model" the classifier is saved.
+     */
+    private static void trainOutOfCore(String[] argv) {
+        long startTime = System.currentTimeMillis();
+        System.out.print("Training out of core with a buffer of " + TRAIN_BUFFER + " bytes...");
+        BayesTextClassifier bayesTextClassifier;
+        try {
+            OutOfCoreTrainer outOfCoreTrainer = new OutOfCoreTrainer(TRAIN_BUFFER,
+                    Paths.get(System.getProperty("java.io.tmpdir")), SETTINGS, trainer.getPool());
+            bayesTextClassifier = outOfCoreTrainer.train(new OutOfCoreTrainer.Source() {
+                @Override
+                public void forEach(Consumer<Document> consumer) throws IOException {
+                    readDocuments("data/trg.txt", true, consumer);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.print("done!\n");
+        System.out.println((System.currentTimeMillis() - startTime) + "ms");
+        bayesTextClassifier.setVectorized(VECTORIZED);
+        if (argv.length == 2 && argv[0].equals("--save")) {
+            try {
+                bayesTextClassifier.save(argv[1], termIndex);
+                System.out.println("Saved classifier to " + argv[1]);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        final BayesTextClassifier classifier = bayesTextClassifier;
+        final ArrayList<Document> batch = new ArrayList<>();
+        final int[] counts = new int[2]; // correct, all
+        startTime = System.currentTimeMillis();
+        System.out.println("Testing documents...");
+        try {
+            readDocuments("data/trg.txt", false, new Consumer<Document>() {
+                @Override
+                public void accept(Document document) {
+                    batch.add(document);
+                    if (batch.size() == 10000) {
+                        test(classifier, batch, counts);
+                    }
+                }
+            });
+            test(classifier, batch, counts);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.print("done!\n");
+        System.out.println((System.currentTimeMillis() - startTime) + "ms");
+        System.out.println(counts[0]*1.0 / counts[1] + " correct labeled documents.");
+
+        System.out.println("Classifying unknown data...");
+        classifyDocuments(classifier, "data/tst.txt", "data/tst_classification_" + System.currentTimeMillis()/1000 + ".txt");
+        System.out.println("done!");
+    }
+
+    /**
+     * @param voting the name of a voting, in any case
+     * @return the voting, null if there is none with the name
+     */
+    private static EnsembleClassifier.Voting parseVoting(String voting) {
+        for (EnsembleClassifier.Voting value : EnsembleClassifier.Voting.values()) {
+            if (value.name().equalsIgnoreCase(voting)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Classifies a batch of test documents, counts the correct
+     * labels and the documents and empties the batch
+     */
+    private static void test(Classifier classifier, ArrayList<Document> batch, int[] counts) {
+        String[] labels = classifier.classifyAll(batch, trainer.getPool());
+        for (int j = 0; j < labels.length; j++) {
+            if (labels[j].equals(batch.get(j).getLabel())) {
+                counts[0]++;
+            }
+        }
+        counts[1] += labels.length;
+        batch.clear();
+    }
+
+    /**
+     * Reads the training or the test documents of a file one by one,
+     * split like in createDocuments. The test documents only look their
+     * words up, they have to be read after the training documents.
+     *
+     * @param filePath the file with the documents
+     * @param training true for the training documents, false for the test documents
+     * @param consumer receives the documents
+     * @throws IOException if the file can't be read
+     */
+    private static void readDocuments(String filePath, boolean training, Consumer<Document> consumer) throws IOException {
+        Random random = new Random(SEED);
+        try (CorpusReader reader = new CorpusReader(filePath, true, trainer.getTokenizer(), trainer.getPool())) {
+            while (reader.hasNext()) {
+                CorpusReader.Record record = reader.next();
+                if (random.nextDouble() < 0.78 == training) {
+                    consumer.accept(record.toDocument(training ? termIndex : LookupOnlyIndex.of(termIndex)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the recorded metrics if they are enabled
+     */
+    private static void reportMetrics() {
+        if (Metrics.isEnabled()) {
+            System.out.println("Metrics:");
+            System.out.print(Metrics.snapshot());
+        }
+    }
+
+    /**
+     * Reads a file and extracts classified documents
+     * @param filePath the file with the documents
+     */
+    public static void createDocuments(String filePath) {
+        createDocuments(filePath, false);
+    }
+
+    /**
+     * Reads a file and extracts classified documents. The test documents
+     * only look their words up, see LookupOnlyIndex, so their words don't
+     * grow the vocabulary. They are created after all training documents,
+     * so an unknown word never gets the id of a later training word.
+     *
+     * @param filePath the file with the documents
+     * @param trainedWithTestDocuments true if the test documents are trained with as well
+     */
+    public static void createDocuments(String filePath, boolean trainedWithTestDocuments) {
+        Random random = new Random(SEED);
+        try (CorpusReader reader = new CorpusReader(filePath, true, trainer.getTokenizer(), trainer.getPool())) {
+            ArrayList<CorpusReader.Record> testRecords = new ArrayList<>();
+            while (reader.hasNext()) {
+                CorpusReader.Record record = reader.next();
+                boolean training;
+                if (DEBUG) {
+                    training = trainDocuments.size() < 3000;
+                } else {
+                    training = random.nextDouble() < 0.78;
+                }
+                if (training) {
+                    trainDocuments.add(record.toDocument(termIndex));
+                } else {
+                    testRecords.add(record);
+                }
+            }
+            TermIndex testIndex = trainedWithTestDocuments ? termIndex : LookupOnlyIndex.of(termIndex);
+            for (CorpusReader.Record record : testRecords) {
+                testDocuments.add(record.toDocument(testIndex));
+            }
+            if (reader.getMalformedLines() > 0) {
+                System.out.print("skipped " + reader.getMalformedLines() + " lines without label...");
+            }
+            System.out.println();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a file with unclassified documents and writes
+     * the label of every document into the output file.
+     * The documents are classified in batches while the
+     * file is read.
+     *
+     * @param classifier the classifier the documents are labeled with
+     * @param filePath the file with the documents
+     * @param outputPath the file the labels are written to
+     */
+    public static void classifyDocuments(Classifier classifier, String filePath, String outputPath) {
+        try (CorpusReader reader = new CorpusReader(filePath, false, trainer.getTokenizer(), trainer.getPool());
+             BufferedWriter bw = new BufferedWriter(new FileWriter(outputPath), 1 << 16)) {
+            ArrayList<Document> batch = new ArrayList<>();
+            // the unclassified documents only look their words up
+            TermIndex lookupIndex = LookupOnlyIndex.of(termIndex);
+            while (reader.hasNext()) {
+                batch.add(reader.next().toDocument(lookupIndex));
+                if (batch.size() == 10000 || !reader.hasNext()) {
+                    for (String label : classifier.classifyAll(batch, trainer.getPool())) {
+                        bw.write(label);
+                        bw.newLine();
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a file with unclassified documents and writes the label
+     * of every document into the output file, the documents are
+     * classified by a ClassificationServer.
+     *
+     * @param port the port of the server
+     * @param filePath the file with the documents
+     * @param outputPath the file the labels are written to
+     */
+    public static void classifyDocuments(int port, String filePath, String outputPath) {
+        try (CorpusReader reader = new CorpusReader(filePath, false, trainer.getTokenizer(), trainer.getPool());
+             ClassificationClient client = new ClassificationClient(port);
+             BufferedWriter bw = new BufferedWriter(new FileWriter(outputPath), 1 << 16)) {
+            ArrayList<String> batch = new ArrayList<>();
+            while (reader.hasNext()) {
+                batch.add(reader.next().getText());
+                if (batch.size() == 10000 || !reader.hasNext()) {
+                    for (String label : client.classifyAll(batch)) {
+                        bw.write(label);
+                        bw.newLine();
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Just compares multiple classifications, the label most of
+     * them agree on is taken. EnsembleClassifier does the same
+     * in memory, see -Dmembers.
+     */
+    public static void getFinalClassification() {
+        try {
+            BufferedWriter bw = new BufferedWriter(new FileWriter("data/tst_classification_final.txt"));
+
+            BufferedReader c0 = new BufferedReader(new FileReader("data/tst_classification_1405851034.txt"));
+            BufferedReader c1 = new BufferedReader(new FileReader("data/tst_classification_1405851126.txt"));
+            BufferedReader c2 = new BufferedReader(new FileReader("data/tst_classification_1405851213.txt"));
+            BufferedReader c3 = new BufferedReader(new FileReader("data/tst_classification_1405851293.txt"));
+            BufferedReader c4 = new BufferedReader(new FileReader("data/tst_classification_1405851415.txt"));
+
+            String c0Label = c0.readLine();
+            String c1Label = c1.readLine();
+            String c2Label = c2.readLine();
+            String c3Label = c3.readLine();
+            String c4Label = c4.readLine();
+
+            HashMap<String, Integer> counts = new HashMap<>();
+            while (c0Label != null) {
+                counts.clear();
+                if (counts.containsKey(c0Label)) {
+                    int count = counts.get(c0Label) + 1;
+                    counts.put(c0Label, count);
+                } else
+                    counts.put(c0Label, 1);
+
+                if (counts.containsKey(c1Label)) {
+                    int count = counts.get(c1Label) + 1;
+                    counts.put(c1Label, count);
+                } else
+                    counts.put(c1Label, 1);
+
+                if (counts.containsKey(c2Label)) {
+                    int count = counts.get(c2Label) + 1;
+                    counts.put(c2Label, count);
+                } else
+                    counts.put(c2Label, 1);
+
+                if (counts.containsKey(c3Label)) {
+                    int count = counts.get(c3Label) + 1;
+                    counts.put(c3Label, count);
+                } else
+                    counts.put(c3Label, 1);
+
+                if (counts.containsKey(c4Label)) {
+                    int count = counts.get(c4Label) + 1;
+                    counts.put(c4Label, count);
+                } else
+                    counts.put(c4Label, 1);
+
+                int maxCount = -1;
+                String label = "";
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    if (entry.getValue() > maxCount) {
+                        maxCount = entry.getValue();
+                        label = entry.getKey();
+                    }
+                }
+                if (label.equals("")) {
+                    throw new Exception();
+                }
+                bw.write(label);
+                bw.newLine();
+
+                c0Label = c0.readLine();
+                c1Label = c1.readLine();
+                c2Label = c2.readLine();
+                c3Label = c3.readLine();
+                c4Label = c4.readLine();
+            }
+            bw.flush();
+            bw.close();
+            c0.close();
+            c1.close();
+            c2.close();
+            c3.close();
+            c4.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
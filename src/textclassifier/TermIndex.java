@@ -0,0 +1,41 @@
+package textclassifier;
+
+/**
+ * Maps the words of the documents to int term ids. The
+ * classifier only works with the term ids, so it doesn't
+ * matter how they are assigned:
+ * - Vocabulary gives every distinct word its own id
+ * - HashedTermIndex hashes the words into a fixed number of ids
+ * The n-grams of a Tokenizer with an n-gram length above 1 get
+ * term ids from the same index, see NGrams.
+ */
+public interface TermIndex {
+    /**
+     * Gets the id of the word text[start, end), new
+     * words may be added to the index.
+     *
+     * @param text the text containing the word
+     * @param start index of the first character of the word
+     * @param end index after the last character of the word
+     * @return the id of the word
+     */
+    int getId(String text, int start, int end);
+
+    /**
+     * Gets the id of the n-gram of the words with the ids
+     * wordIds[from, from + n), new n-grams may be added to
+     * the index. The key is the hash of the ids, see NGrams.
+     *
+     * @param key the key of the n-gram
+     * @param wordIds the ids of the words of a document
+     * @param from the index of the first word of the n-gram
+     * @param n the number of words of the n-gram
+     * @return the id of the n-gram
+     */
+    int getId(long key, int[] wordIds, int from, int n);
+
+    /**
+     * @return the number of term ids handed out so far, all ids are below it
+     */
+    int size();
+}
@@ -0,0 +1,157 @@
+package textclassifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Splits texts into words. The characters of the text are
+ * scanned once: words are separated by spaces, numbers and
+ * stop words are left out.
+ *
+ * The words aren't copied out of the text, the tokenizer
+ * returns the start and end index of every word and the
+ * vocabulary looks the words up by these ranges.
+ *
+ * With an n-gram length above 1 the documents also get the
+ * n-grams of 2 up to that many words next to each other as
+ * terms, see withNGramLength and NGrams.
+ *
+ * A tokenizer is immutable and can be shared by all threads.
+ */
+public class Tokenizer {
+    private static final String[] DEFAULT_STOPWORDS = new String[]{
+            "a", "about", "above", "above", "across", "after", "afterwards", "again", "against", "all", "almost", "alone", "along", "already", "also","although","always","am","among", "amongst", "amoungst", "amount",  "an", "and", "another", "any","anyhow","anyone","anything","anyway", "anywhere", "are", "around", "as",  "at", "back","be","became", "because","become","becomes", "becoming", "been", "before", "beforehand", "behind", "being", "below", "beside", "besides", "between", "beyond", "bill", "both", "bottom","but", "by", "call", "can", "cannot", "cant", "co", "con", "could", "couldnt", "cry", "de", "describe", "detail", "do", "done", "down", "due", "during", "each", "eg", "eight", "either", "eleven","else", "elsewhere", "empty", "enough", "etc", "even", "ever", "every", "everyone", "everything", "everywhere", "except", "few", "fifteen", "fify", "fill", "find", "fire", "first", "five", "for", "former", "formerly", "forty", "found", "four", "from", "front", "full", "further", "get", "give", "go", "had", "has", "hasnt", "have", "he", "hence", "her", "here", "hereafter", "hereby", "herein", "hereupon", "hers", "herself", "him", "himself", "his", "how", "however", "hundred", "ie", "if", "in", "inc", "indeed", "interest", "into", "is", "it", "its", "itself", "keep", "last", "latter", "latterly", "least", "less", "ltd", "made", "many", "may", "me", "meanwhile", "might", "mill", "mine", "more", "moreover", "most", "mostly", "move", "much", "must", "my", "myself", "name", "namely", "neither", "never", "nevertheless", "next", "nine", "no", "nobody", "none", "noone", "nor", "not", "nothing", "now", "nowhere", "of", "off", "often", "on", "once", "one", "only", "onto", "or", "other", "others", "otherwise", "our", "ours", "ourselves", "out", "over", "own","part", "per", "perhaps", "please", "put", "rather", "re", "same", "see", "seem", "seemed", "seeming", "seems", "serious", "several", "she", "should", "show", "side", "since", "sincere", "six", "sixty", "so", "some", "somehow", "someone", "something", "sometime", "sometimes", "somewhere", "still", "such", "system", "take", "ten", "than", "that", "the", "their", "them", "themselves", "then", "thence", "there", "thereafter", "thereby", "therefore", "therein", "thereupon", "these", "they", "thickv", "thin", "third", "this", "those", "though", "three", "through", "throughout", "thru", "thus", "to", "together", "too", "top", "toward", "towards", "twelve", "twenty", "two", "un", "under", "until", "up", "upon", "us", "very", "via", "was", "we", "well", "were", "what", "whatever", "when", "whence", "whenever", "where", "whereafter", "whereas", "whereby", "wherein", "whereupon", "wherever", "whether", "which", "while", "whither", "who", "whoever", "whole", "whom", "whose", "why", "will", "with", "within", "without", "would", "yet", "you", "your", "yours", "yourself", "yourselves", "the"
+    };
+
+    private static final Tokenizer DEFAULT = new Tokenizer(Arrays.asList(DEFAULT_STOPWORDS));
+
+    // The stop words, only used for lookups after construction
+    private final Vocabulary stopwords;
+    // Maximal number of words of a term, 1 for single words only
+    private final int ngramLength;
+
+    /**
+     * Creates a tokenizer leaving out the given stop words
+     * @param stopwords the stop words
+     */
+    public Tokenizer(Collection<String> stopwords) {
+        this.stopwords = new Vocabulary();
+        for (String stopword : stopwords) {
+            this.stopwords.getId(stopword);
+        }
+        this.ngramLength = 1;
+    }
+
+    private Tokenizer(Vocabulary stopwords, int ngramLength) {
+        this.stopwords = stopwords;
+        this.ngramLength = ngramLength;
+    }
+
+    /**
+     * Creates a tokenizer with the same stop words whose documents
+     * also have the n-grams of up to ngramLength words as terms
+     *
+     * @param ngramLength the maximal number of words of a term, 1 for single words only
+     * @return the tokenizer
+     */
+    public Tokenizer withNGramLength(int ngramLength) {
+        if (ngramLength < 1) {
+            throw new IllegalArgumentException("ngramLength must be at least 1: " + ngramLength);
+        }
+        return new Tokenizer(this.stopwords, ngramLength);
+    }
+
+    /**
+     * @return the maximal number of words of a term, 1 for single words only
+     */
+    public int getNGramLength() {
+        return this.ngramLength;
+    }
+
+    /**
+     * @return the tokenizer with the built in stop word list
+     */
+    public static Tokenizer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a tokenizer with the stop words of a file. The
+     * stop words are separated by commas or white spaces.
+     *
+     * @param filePath the file with the stop words
+     * @return the tokenizer
+     * @throws IOException if the file can't be read
+     */
+    public static Tokenizer fromStopwordFile(String filePath) throws IOException {
+        String content = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
+        ArrayList<String> stopwords = new ArrayList<>();
+        for (String stopword : content.split("[,\\s]+")) {
+            if (!stopword.isEmpty()) {
+                stopwords.add(stopword);
+            }
+        }
+        return new Tokenizer(stopwords);
+    }
+
+    /**
+     * @param word a word
+     * @return true if the word is left out as stop word
+     */
+    public boolean isStopword(String word) {
+        return this.stopwords.lookup(word) >= 0;
+    }
+
+    /**
+     * Splits the text into words like text.split(" ") with every
+     * part trimmed: words are separated by spaces only, the other
+     * characters up to the space character (tabs, line breaks) are
+     * cut off at the start and end of a word but are part of it in
+     * between. Empty words, words consisting only of the digits 0-9
+     * and stop words are left out.
+     *
+     * @param text the text which will be splitted
+     * @return the start and end index of every word, so word k
+     *         is text.substring(tokens[2 * k], tokens[2 * k + 1])
+     */
+    public int[] tokenize(String text) {
+        int[] tokens = new int[32];
+        int size = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            while (i < length && text.charAt(i) != ' ') {
+                i++;
+            }
+            int end = i++;
+            // trimmed like String.trim
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                continue;
+            }
+            boolean number = true;
+            for (int k = start; k < end && number; k++) {
+                char ch = text.charAt(k);
+                number = ch >= '0' && ch <= '9';
+            }
+            if (number || this.stopwords.lookup(text, start, end) >= 0) {
+                continue;
+            }
+            if (size + 2 > tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            }
+            tokens[size++] = start;
+            tokens[size++] = end;
+        }
+        return Arrays.copyOf(tokens, size);
+    }
+}
@@ -0,0 +1,132 @@
+package textclassifier;
+
+/**
+ * The settings a BayesTextClassifier is trained with, so they can
+ * be handed on as a whole, e.g. to the models of the folds of a
+ * CrossValidation or to the members of an EnsembleClassifier:
+ * - the transformations of the improved counts, see Transform
+ * - the threshold of the frequent words, see BayesTextClassifier.setWordThreshold
+ * - the maximal number of kept terms, see BayesTextClassifier.setMaxTermCount
+ * - the maximal size of the weights, see BayesTextClassifier.setMaxModelSize
+ * - weights outside of the heap, see BayesTextClassifier.setOffHeap
+ *
+ * The settings are immutable, the with methods return changed
+ * copies. DEFAULT are the settings of a new classifier.
+ */
+public final class TrainingSettings {
+    public static final TrainingSettings DEFAULT = new TrainingSettings(Transform.DEFAULT, .1, 0, 0, false);
+
+    private final Transform transform;
+    private final double wordThreshold;
+    private final int maxTermCount;
+    private final long maxModelSize;
+    private final boolean offHeap;
+
+    private TrainingSettings(Transform transform, double wordThreshold, int maxTermCount, long maxModelSize, boolean offHeap) {
+        this.transform = transform;
+        this.wordThreshold = wordThreshold;
+        this.maxTermCount = maxTermCount;
+        this.maxModelSize = maxModelSize;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param transform the transformations of the improved counts
+     * @return the settings with the given transformations
+     */
+    public TrainingSettings withTransform(Transform transform) {
+        if (transform == null) {
+            throw new IllegalArgumentException("transform must not be null");
+        }
+        return new TrainingSettings(transform, this.wordThreshold, this.maxTermCount, this.maxModelSize, this.offHeap);
+    }
+
+    /**
+     * @param wordThreshold the share of the highest sum, 1 keeps all words
+     * @return the settings with the given threshold of the frequent words
+     */
+    public TrainingSettings withWordThreshold(double wordThreshold) {
+        if (!(wordThreshold >= 0)) {
+            throw new IllegalArgumentException("wordThreshold must not be negative: " + wordThreshold);
+        }
+        return new TrainingSettings(this.transform, wordThreshold, this.maxTermCount, this.maxModelSize, this.offHeap);
+    }
+
+    /**
+     * @param maxTermCount the maximal number of terms, 0 keeps all
+     * @return the settings with the given maximal number of kept terms
+     */
+    public TrainingSettings withMaxTermCount(int maxTermCount) {
+        if (maxTermCount < 0) {
+            throw new IllegalArgumentException("maxTermCount must not be negative: " + maxTermCount);
+        }
+        return new TrainingSettings(this.transform, this.wordThreshold, maxTermCount, this.maxModelSize, this.offHeap);
+    }
+
+    /**
+     * @param offHeap true to keep the weights outside of the heap
+     * @return the settings with the weights kept on or off the heap
+     */
+    public TrainingSettings withOffHeap(boolean offHeap) {
+        return new TrainingSettings(this.transform, this.wordThreshold, this.maxTermCount, this.maxModelSize, offHeap);
+    }
+
+    /**
+     * @param maxModelSize the maximal size of the weights in bytes, 0 for no limit
+     * @return the settings with the given maximal size of the weights
+     */
+    public TrainingSettings withMaxModelSize(long maxModelSize) {
+        if (maxModelSize < 0) {
+            throw new IllegalArgumentException("maxModelSize must not be negative: " + maxModelSize);
+        }
+        return new TrainingSettings(this.transform, this.wordThreshold, this.maxTermCount, maxModelSize, this.offHeap);
+    }
+
+    public Transform getTransform() {
+        return this.transform;
+    }
+
+    public double getWordThreshold() {
+        return this.wordThreshold;
+    }
+
+    public int getMaxTermCount() {
+        return this.maxTermCount;
+    }
+
+    public long getMaxModelSize() {
+        return this.maxModelSize;
+    }
+
+    public boolean isOffHeap() {
+        return this.offHeap;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TrainingSettings)) {
+            return false;
+        }
+        TrainingSettings other = (TrainingSettings) obj;
+        return other.transform.equals(this.transform)
+                && Double.compare(other.wordThreshold, this.wordThreshold) == 0
+                && other.maxTermCount == this.maxTermCount
+                && other.maxModelSize == this.maxModelSize
+                && other.offHeap == this.offHeap;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.transform.hashCode();
+        result = 31 * result + Double.hashCode(this.wordThreshold);
+        result = 31 * result + this.maxTermCount;
+        result = 31 * result + Long.hashCode(this.maxModelSize);
+        return 31 * result + (this.offHeap ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return this.transform + " wordThreshold=" + this.wordThreshold + " maxTerms=" + this.maxTermCount
+                + " maxModelSize=" + this.maxModelSize + " offHeap=" + this.offHeap;
+    }
+}
@@ -0,0 +1,63 @@
+package textclassifier;
+
+/**
+ * Selects the transformations of the word counts into the
+ * improved counts, see Document.calculateImprovedCounts:
+ * - Term Frequency transform, see §4.1 Transforming Term Frequency
+ * - Inverse Document Frequency, see §4.2 Transforming by Document Frequency
+ * - Length Normalization, see §4.3 Transforming Based on Length
+ *
+ * They are applied in this order, a disabled one passes the
+ * counts on unchanged. DEFAULT enables all of them.
+ */
+public final class Transform {
+    public static final Transform DEFAULT = new Transform(true, true, true);
+
+    private final boolean termFrequency;
+    private final boolean inverseDocumentFrequency;
+    private final boolean lengthNorm;
+
+    /**
+     * @param termFrequency true for the TF transform log(count + 1)
+     * @param inverseDocumentFrequency true for the IDF transform, multiplied with log(N / document frequency)
+     * @param lengthNorm true to divide the counts by their euclidean length
+     */
+    public Transform(boolean termFrequency, boolean inverseDocumentFrequency, boolean lengthNorm) {
+        this.termFrequency = termFrequency;
+        this.inverseDocumentFrequency = inverseDocumentFrequency;
+        this.lengthNorm = lengthNorm;
+    }
+
+    public boolean isTermFrequency() {
+        return this.termFrequency;
+    }
+
+    public boolean isInverseDocumentFrequency() {
+        return this.inverseDocumentFrequency;
+    }
+
+    public boolean isLengthNorm() {
+        return this.lengthNorm;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Transform)) {
+            return false;
+        }
+        Transform other = (Transform) obj;
+        return other.termFrequency == this.termFrequency
+                && other.inverseDocumentFrequency == this.inverseDocumentFrequency
+                && other.lengthNorm == this.lengthNorm;
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.termFrequency ? 4 : 0) + (this.inverseDocumentFrequency ? 2 : 0) + (this.lengthNorm ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "TF=" + this.termFrequency + " IDF=" + this.inverseDocumentFrequency + " LN=" + this.lengthNorm;
+    }
+}
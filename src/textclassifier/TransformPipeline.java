@@ -0,0 +1,271 @@
+package textclassifier;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Trains a classifier in stages and keeps the result of every stage,
+ * so trying other settings only runs the stages after the changed one:
+ * - tokenize and raw counts: the documents, created once
+ * - document frequencies of the documents, counted once
+ * - TF transform, see Transform.isTermFrequency
+ * - IDF transform, see Transform.isInverseDocumentFrequency
+ * - length norm, see Transform.isLengthNorm
+ * - sums of the improved counts per label (ClassStatistics)
+ * - frequent word filter and Steps 4-6, in the BayesTextClassifier,
+ *   see setWordThreshold and setMaxTermCount
+ *
+ * A disabled transform passes on the counts of the stage before it
+ * without copying them. The improved counts of the last stage are
+ * set on the documents, they are the same as the ones calculated by
+ * Document.calculateImprovedCounts with the same Transform.
+ *
+ * For a parameter sweep the cheap settings should change most often,
+ * e.g. the word threshold in the inner loop.
+ */
+public class TransformPipeline {
+    private final List<Document> documents;
+    private final ForkJoinPool pool;
+    private Transform transform;
+    // usage in % of words, see BayesTextClassifier.setWordThreshold
+    private double wordThreshold = .1;
+    // maximal number of terms kept by pruning, 0 keeps all
+    private int maxTermCount = 0;
+
+    // The results of the stages, null if they have to be computed again
+    private CorpusStatistics corpusStatistics;
+    private double[][] termFrequencies; // [document][term]
+    private double[][] documentFrequencies; // [document][term]
+    private double[][] improvedCounts; // [document][term]
+    private ClassStatistics statistics;
+    private BayesTextClassifier classifier;
+
+    /**
+     * Creates a pipeline for the documents, which are tokenized
+     * and counted already
+     *
+     * @param trainer the trainer whose pool the stages run on
+     * @param documents the labeled documents the classifier is trained with
+     */
+    public TransformPipeline(ParallelTrainer trainer, List<Document> documents) {
+        this.documents = documents;
+        this.pool = trainer.getPool();
+        this.transform = Transform.DEFAULT;
+    }
+
+    /**
+     * Creates a pipeline for the given texts, they are tokenized
+     * and counted with the trainer once
+     *
+     * @param trainer the trainer the texts are tokenized with
+     * @param texts the texts of the documents
+     * @param labels the labels of the documents, parallel to texts
+     * @param termIndex the index the word ids are taken from
+     */
+    public TransformPipeline(ParallelTrainer trainer, List<String> texts, List<String> labels, TermIndex termIndex) {
+        this(trainer, trainer.createDocuments(texts, labels, termIndex));
+    }
+
+    /**
+     * Selects the transformations. Only the stage of the first
+     * changed transformation and the ones after it run again.
+     *
+     * @param transform the transformations of the improved counts
+     */
+    public void setTransform(Transform transform) {
+        if (transform.isTermFrequency() != this.transform.isTermFrequency()) {
+            this.termFrequencies = null;
+        }
+        if (this.termFrequencies == null || transform.isInverseDocumentFrequency() != this.transform.isInverseDocumentFrequency()) {
+            this.documentFrequencies = null;
+        }
+        if (this.documentFrequencies == null || transform.isLengthNorm() != this.transform.isLengthNorm()) {
+            this.improvedCounts = null;
+        }
+        if (this.improvedCounts == null) {
+            this.statistics = null;
+            this.classifier = null;
+        }
+        this.transform = transform;
+    }
+
+    /**
+     * @return the selected transformations
+     */
+    public Transform getTransform() {
+        return this.transform;
+    }
+
+    /**
+     * Sets the threshold of the frequent words, see
+     * BayesTextClassifier.setWordThreshold. Only the
+     * weights are computed again.
+     *
+     * @param wordThreshold the share of the highest sum, 1 keeps all words
+     */
+    public void setWordThreshold(double wordThreshold) {
+        if (!(wordThreshold >= 0)) {
+            throw new IllegalArgumentException("wordThreshold must not be negative: " + wordThreshold);
+        }
+        if (this.classifier != null) {
+            this.classifier.setWordThreshold(wordThreshold);
+        }
+        this.wordThreshold = wordThreshold;
+    }
+
+    /**
+     * @return the threshold of the frequent words
+     */
+    public double getWordThreshold() {
+        return this.wordThreshold;
+    }
+
+    /**
+     * Limits the number of terms the weights are kept for, see
+     * BayesTextClassifier.setMaxTermCount. Only the weights are
+     * computed again.
+     *
+     * @param maxTermCount the maximal number of terms, 0 keeps all
+     */
+    public void setMaxTermCount(int maxTermCount) {
+        if (maxTermCount < 0) {
+            throw new IllegalArgumentException("maxTermCount must not be negative: " + maxTermCount);
+        }
+        if (this.classifier != null) {
+            this.classifier.setMaxTermCount(maxTermCount);
+        }
+        this.maxTermCount = maxTermCount;
+    }
+
+    /**
+     * @return the documents, with the improved counts of the last getClassifier
+     */
+    public List<Document> getDocuments() {
+        return this.documents;
+    }
+
+    /**
+     * @return the document frequencies and number of the documents
+     */
+    public CorpusStatistics getCorpusStatistics() {
+        if (this.corpusStatistics == null) {
+            long start = Metrics.start();
+            this.corpusStatistics = new CorpusStatistics(this.documents, this.pool);
+            Metrics.stop(Metrics.Timer.DOCUMENT_FREQUENCY, start);
+        }
+        return this.corpusStatistics;
+    }
+
+    /**
+     * Gets the classifier trained with the current settings. The same
+     * classifier is returned until the transformations are changed, a
+     * changed word threshold or term count is applied to it.
+     *
+     * @return the trained classifier
+     */
+    public BayesTextClassifier getClassifier() {
+        if (this.classifier == null) {
+            this.classifier = new BayesTextClassifier(this.getStatistics(), this.pool, this.wordThreshold, this.maxTermCount);
+        }
+        return this.classifier;
+    }
+
+    /**
+     * @return the sums of the improved counts per label with the current transformations
+     */
+    public ClassStatistics getStatistics() {
+        if (this.statistics == null) {
+            double[][] improvedCounts = this.getImprovedCounts();
+            for (int j = 0; j < this.documents.size(); j++) {
+                this.documents.get(j).setImprovedCounts(improvedCounts[j]);
+            }
+            long start = Metrics.start();
+            ClassStatistics statistics = new ClassStatistics(this.transform);
+            statistics.addAll(this.documents, this.getCorpusStatistics(), this.pool);
+            Metrics.stop(Metrics.Timer.STATISTICS, start);
+            this.statistics = statistics;
+        }
+        return this.statistics;
+    }
+
+    private double[][] getTermFrequencies() {
+        if (this.termFrequencies == null) {
+            final boolean termFrequency = this.transform.isTermFrequency();
+            this.termFrequencies = this.runStage(new Stage() {
+                @Override
+                double[] run(int j, Document document) {
+                    double[] result = new double[document.getCounts().length];
+                    Document.transformTermFrequency(document.getCounts(), termFrequency, result);
+                    return result;
+                }
+            });
+        }
+        return this.termFrequencies;
+    }
+
+    private double[][] getDocumentFrequencies() {
+        if (this.documentFrequencies == null) {
+            final double[][] termFrequencies = this.getTermFrequencies();
+            if (!this.transform.isInverseDocumentFrequency()) {
+                this.documentFrequencies = termFrequencies;
+            } else {
+                final CorpusStatistics corpusStatistics = this.getCorpusStatistics();
+                this.documentFrequencies = this.runStage(new Stage() {
+                    @Override
+                    double[] run(int j, Document document) {
+                        double[] counts = termFrequencies[j];
+                        double[] result = new double[counts.length];
+                        Document.transformDocumentFrequency(document.getTermIds(), counts, corpusStatistics, result);
+                        return result;
+                    }
+                });
+            }
+        }
+        return this.documentFrequencies;
+    }
+
+    private double[][] getImprovedCounts() {
+        if (this.improvedCounts == null) {
+            final double[][] documentFrequencies = this.getDocumentFrequencies();
+            if (!this.transform.isLengthNorm()) {
+                this.improvedCounts = documentFrequencies;
+            } else {
+                this.improvedCounts = this.runStage(new Stage() {
+                    @Override
+                    double[] run(int j, Document document) {
+                        double[] counts = documentFrequencies[j];
+                        double[] result = new double[counts.length];
+                        Document.normalizeLength(counts, result);
+                        return result;
+                    }
+                });
+            }
+        }
+        return this.improvedCounts;
+    }
+
+    /**
+     * Transforms the counts of the j-th document
+     */
+    private abstract static class Stage {
+        abstract double[] run(int j, Document document);
+    }
+
+    /**
+     * Runs a stage for every document, in parallel over the documents
+     */
+    private double[][] runStage(final Stage stage) {
+        long start = Metrics.start();
+        final double[][] result = new double[this.documents.size()][];
+        ParallelLoop.forRange(this.pool, 0, this.documents.size(), ParallelLoop.grain(this.pool, this.documents.size()), new ParallelLoop.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    result[j] = stage.run(j, documents.get(j));
+                }
+            }
+        });
+        Metrics.stop(Metrics.Timer.TRANSFORM, start);
+        return result;
+    }
+}
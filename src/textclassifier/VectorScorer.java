@@ -0,0 +1,120 @@
+package textclassifier;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Scores documents with the Vector API (jdk.incubator.vector), see
+ * BayesTextClassifier.setVectorized. For every term of the document
+ * the weights of a block of labels are multiplied with the count and
+ * added to the sums of these labels at once, the labels which don't
+ * fill a whole block are added up one by one. The arg min is searched
+ * block by block as well.
+ *
+ * The sum of every label is added up in the same order and with the
+ * same operations as in the scalar loop, so the scores and labels are
+ * exactly the same.
+ *
+ * The class can only be loaded if the JVM was started with
+ * --add-modules jdk.incubator.vector, BayesTextClassifier checks
+ * this before using it.
+ */
+final class VectorScorer {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorScorer() {
+    }
+
+    /**
+     * Sums up the weights of the words in the document for every label
+     *
+     * @param weight the weights, term major, null if direct is used
+     * @param direct the weights outside of the heap, if weight is null
+     * @param row the row of each term id, -1 for pruned terms, null if the row is the term id
+     * @param termCount the number of term ids covered by the weights
+     * @param labelCount the number of labels
+     * @param termIds the term ids of the document
+     * @param counts the counts of the term ids
+     * @param scores receives the sum for each label
+     * @return the index of the label with the minimal sum, -1 if there is none
+     */
+    static int score(double[] weight, DirectWeights direct, int[] row, int termCount, int labelCount,
+                     int[] termIds, int[] counts, double[] scores) {
+        int lanes = SPECIES.length();
+        int upper = SPECIES.loopBound(labelCount);
+        Arrays.fill(scores, 0, labelCount, 0.);
+        for (int k = 0; k < termIds.length; k++) {
+            if (termIds[k] >= termCount) {
+                continue;
+            }
+            int r = row == null ? termIds[k] : row[termIds[k]];
+            if (r < 0) {
+                continue;
+            }
+            // an index into weight, or the position of the row in its segment
+            int offset = weight != null ? r * labelCount : direct.position(r);
+            ByteBuffer segment = weight != null ? null : direct.segment(r);
+            double count = counts[k];
+            int c = 0;
+            for (; c < upper; c += lanes) {
+                DoubleVector w = weight != null
+                        ? DoubleVector.fromArray(SPECIES, weight, offset + c)
+                        : DoubleVector.fromByteBuffer(SPECIES, segment, offset + (c << 3), ByteOrder.LITTLE_ENDIAN);
+                DoubleVector.fromArray(SPECIES, scores, c).add(w.mul(count)).intoArray(scores, c);
+            }
+            for (; c < labelCount; c++) {
+                scores[c] += count * (weight != null ? weight[offset + c] : segment.getDouble(offset + (c << 3)));
+            }
+        }
+        return argMin(scores, labelCount);
+    }
+
+    /**
+     * Gets the index of the first minimal sum below Double.MAX_VALUE
+     * like the scalar loop, which also skips NaN sums
+     */
+    private static int argMin(double[] scores, int labelCount) {
+        int upper = SPECIES.loopBound(labelCount);
+        double minimum = Double.MAX_VALUE;
+        if (upper > 0) {
+            DoubleVector min = DoubleVector.broadcast(SPECIES, Double.MAX_VALUE);
+            for (int c = 0; c < upper; c += SPECIES.length()) {
+                min = min.min(DoubleVector.fromArray(SPECIES, scores, c));
+            }
+            minimum = min.reduceLanes(VectorOperators.MIN);
+        }
+        for (int c = upper; c < labelCount; c++) {
+            minimum = Math.min(minimum, scores[c]);
+        }
+        if (!(minimum < Double.MAX_VALUE)) {
+            // NaN sums or no sum below Double.MAX_VALUE, left to the scalar loop
+            int label = -1;
+            double scalarMinimum = Double.MAX_VALUE;
+            for (int c = 0; c < labelCount; c++) {
+                if (scores[c] < scalarMinimum) {
+                    scalarMinimum = scores[c];
+                    label = c;
+                }
+            }
+            return label;
+        }
+        int c = 0;
+        for (; c < upper; c += SPECIES.length()) {
+            int lane = DoubleVector.fromArray(SPECIES, scores, c).compare(VectorOperators.EQ, minimum).firstTrue();
+            if (lane < SPECIES.length()) {
+                return c + lane;
+            }
+        }
+        for (; c < labelCount; c++) {
+            if (scores[c] == minimum) {
+                return c;
+            }
+        }
+        return -1;
+    }
+}
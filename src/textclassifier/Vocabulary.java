@@ -0,0 +1,235 @@
+package textclassifier;
+
+import java.util.*;
+
+/**
+ * The term dictionary shared by all documents. It maps
+ * each distinct word to a dense int id, so the documents
+ * only store primitive term ids instead of holding an
+ * own copy of every word.
+ *
+ * The ids are handed out in the order the words are
+ * seen first, starting with 0.
+ *
+ * Words can be looked up by a range of characters of a
+ * text, so the tokenizer doesn't need to create a String
+ * for every token. A String is only created for new words.
+ *
+ * The n-grams are kept by their key in a LongIntMap, they get
+ * their ids from the same sequence as the words. Only the ids
+ * of their words are stored, their word is built by getWord
+ * when it is asked for, e.g. when a model is saved.
+ */
+public class Vocabulary implements WordIndex {
+    // Open addressing table of the words, null marks a free slot
+    private String[] keys;
+    // Ids of the words in keys
+    private int[] ids;
+    // Number of words in keys
+    private int wordCount;
+    // Stores for each id its word, null for an n-gram
+    private String[] words;
+    // Stores for each id of an n-gram the index of its number of words in ngramWords
+    private int[] ngramStarts;
+    // The number of words followed by the word ids of every n-gram
+    private int[] ngramWords;
+    // Number of used ints in ngramWords
+    private int ngramWordsSize;
+    // Ids of the n-grams by their key
+    private LongIntMap ngrams;
+    // Number of distinct words and n-grams
+    private int size;
+
+    public Vocabulary() {
+        this.keys = new String[1024];
+        this.ids = new int[1024];
+        this.words = new String[512];
+        this.ngramStarts = new int[512];
+        this.ngramWords = new int[0];
+        this.ngramWordsSize = 0;
+        this.ngrams = new LongIntMap();
+        this.wordCount = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the id of a word. If the word isn't in the
+     * vocabulary yet, it is added with a new id.
+     *
+     * @param word the word the id is returned for
+     * @return the id of the word
+     */
+    public int getId(String word) {
+        return this.getId(word, 0, word.length());
+    }
+
+    /**
+     * Gets the id of the word text[start, end). If the word
+     * isn't in the vocabulary yet, it is added with a new id.
+     *
+     * @param text the text containing the word
+     * @param start index of the first character of the word
+     * @param end index after the last character of the word
+     * @return the id of the word
+     */
+    @Override
+    public int getId(String text, int start, int end) {
+        int slot = this.slot(text, start, end);
+        if (this.keys[slot] != null) {
+            return this.ids[slot];
+        }
+        if (NGrams.isNGram(text, start, end)) {
+            return NGrams.getId(this, text, start, end, true);
+        }
+        String word = text.substring(start, end);
+        int id = this.add(word);
+        this.keys[slot] = word;
+        this.ids[slot] = id;
+        if (++this.wordCount * 2 > this.keys.length) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    @Override
+    public int getId(long key, int[] wordIds, int from, int n) {
+        int id = this.ngrams.get(key);
+        if (id >= 0) {
+            return id;
+        }
+        id = this.add(null);
+        if (this.ngramWordsSize + n + 1 > this.ngramWords.length) {
+            this.ngramWords = Arrays.copyOf(this.ngramWords, Math.max(2 * this.ngramWords.length, this.ngramWordsSize + n + 1));
+        }
+        this.ngramStarts[id] = this.ngramWordsSize;
+        this.ngramWords[this.ngramWordsSize++] = n;
+        System.arraycopy(wordIds, from, this.ngramWords, this.ngramWordsSize, n);
+        this.ngramWordsSize += n;
+        this.ngrams.put(key, id);
+        return id;
+    }
+
+    /**
+     * Hands out the next id for the word of a new word, null for an n-gram
+     */
+    private int add(String word) {
+        int id = this.size++;
+        if (id == this.words.length) {
+            this.words = Arrays.copyOf(this.words, id * 2);
+            this.ngramStarts = Arrays.copyOf(this.ngramStarts, id * 2);
+        }
+        this.words[id] = word;
+        return id;
+    }
+
+    /**
+     * Gets the id of a word without adding it.
+     *
+     * @param word the word the id is returned for
+     * @return the id of the word or -1 if the word is unknown
+     */
+    public int lookup(String word) {
+        return this.lookup(word, 0, word.length());
+    }
+
+    /**
+     * Gets the id of the word text[start, end) without adding it.
+     *
+     * @param text the text containing the word
+     * @param start index of the first character of the word
+     * @param end index after the last character of the word
+     * @return the id of the word or -1 if the word is unknown
+     */
+    @Override
+    public int lookup(String text, int start, int end) {
+        int slot = this.slot(text, start, end);
+        if (this.keys[slot] == null) {
+            return NGrams.isNGram(text, start, end) ? NGrams.getId(this, text, start, end, false) : -1;
+        }
+        return this.ids[slot];
+    }
+
+    @Override
+    public int lookup(long key) {
+        return this.ngrams.get(key);
+    }
+
+    /**
+     * @param id the id of a word
+     * @return the word for the given id
+     */
+    @Override
+    public String getWord(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("unknown term id: " + id);
+        }
+        String word = this.words[id];
+        if (word != null) {
+            return word;
+        }
+        int start = this.ngramStarts[id];
+        int end = start + 1 + this.ngramWords[start];
+        StringBuilder ngram = new StringBuilder(this.words[this.ngramWords[start + 1]]);
+        for (int k = start + 2; k < end; k++) {
+            ngram.append(' ').append(this.words[this.ngramWords[k]]);
+        }
+        return ngram.toString();
+    }
+
+    /**
+     * @return the number of distinct words and n-grams
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Finds the slot of the word text[start, end), either
+     * the one containing it or the free one it belongs to.
+     */
+    private int slot(String text, int start, int end) {
+        int length = end - start;
+        int mask = this.keys.length - 1;
+        int slot = hash(text, start, end) & mask;
+        while (true) {
+            String key = this.keys[slot];
+            if (key == null || (key.length() == length && key.regionMatches(0, text, start, length))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        String[] keys = new String[this.keys.length * 2];
+        int[] ids = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < this.keys.length; i++) {
+            String key = this.keys[i];
+            if (key == null) {
+                continue;
+            }
+            int slot = hash(key, 0, key.length()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ids[slot] = this.ids[i];
+        }
+        this.keys = keys;
+        this.ids = ids;
+    }
+
+    /**
+     * Same as String.hashCode of the word, with the bits
+     * spread so the low bits can be used as table index.
+     */
+    static int hash(String text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+}
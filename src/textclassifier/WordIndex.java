@@ -0,0 +1,36 @@
+package textclassifier;
+
+/**
+ * A TermIndex which keeps the words, so every distinct word
+ * has its own id and the word of an id can be looked up.
+ * Implemented by Vocabulary on the heap and by OffHeapVocabulary.
+ *
+ * Every distinct n-gram has its own id as well. Its word is
+ * the words of the n-gram separated by single spaces, getId
+ * and lookup accept this form too.
+ */
+public interface WordIndex extends TermIndex {
+    /**
+     * Gets the id of the word text[start, end) without adding it.
+     *
+     * @param text the text containing the word
+     * @param start index of the first character of the word
+     * @param end index after the last character of the word
+     * @return the id of the word or -1 if the word is unknown
+     */
+    int lookup(String text, int start, int end);
+
+    /**
+     * Gets the id of an n-gram without adding it
+     *
+     * @param key the key of the n-gram, see NGrams
+     * @return the id of the n-gram or -1 if the n-gram is unknown
+     */
+    int lookup(long key);
+
+    /**
+     * @param id the id of a word
+     * @return the word for the given id
+     */
+    String getWord(int id);
+}
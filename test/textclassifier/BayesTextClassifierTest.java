@@ -0,0 +1,118 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BayesTextClassifierTest {
+    @Test
+    void vectorizedScoresAreTheScalarScores() {
+        assertTrue(BayesTextClassifier.isVectorAvailable());
+        // more labels than lanes, so whole blocks and the rest are scored
+        TestCorpus corpus = new TestCorpus(600, 19, 2);
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = corpus.documents(new Vocabulary());
+        trainer.calculateImprovedCounts(documents);
+        for (int variant = 0; variant < 3; variant++) {
+            BayesTextClassifier classifier = trainer.train(documents);
+            classifier.setMaxTermCount(variant == 1 ? 150 : 0);
+            classifier.setOffHeap(variant == 2);
+            double[] scalar = TestCorpus.scores(classifier, documents);
+            String[] scalarLabels = classifier.classifyAll(documents, null);
+            classifier.setVectorized(true);
+            assertArrayEquals(scalar, TestCorpus.scores(classifier, documents), "variant " + variant);
+            assertArrayEquals(scalarLabels, classifier.classifyAll(documents, null), "variant " + variant);
+        }
+    }
+
+    @Test
+    void offHeapWeightsScoreLikeTheHeapWeights() {
+        TestCorpus corpus = new TestCorpus(300, 4, 5);
+        OffHeapVocabulary vocabulary = new OffHeapVocabulary();
+        ArrayList<Document> documents = corpus.documents(vocabulary);
+        ArrayList<Document> heapDocuments = corpus.documents(new Vocabulary());
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        trainer.calculateImprovedCounts(documents);
+        trainer.calculateImprovedCounts(heapDocuments);
+        BayesTextClassifier heap = trainer.train(heapDocuments);
+        BayesTextClassifier offHeap = trainer.train(documents);
+        offHeap.setOffHeap(true);
+        assertArrayEquals(heap.getLabels(), offHeap.getLabels());
+        assertArrayEquals(TestCorpus.scores(heap, heapDocuments), TestCorpus.scores(offHeap, documents));
+        // the weights are computed, the statistics are released
+        assertNull(offHeap.getStatistics());
+        for (int id = 0; id < vocabulary.size(); id++) {
+            assertEquals(id, vocabulary.lookup(vocabulary.getWord(id)));
+        }
+    }
+
+    @Test
+    void weightsNotFittingIntoAnArrayAreRejected() {
+        assertEquals(3 * 1000000, BayesTextClassifier.weightCount(1000000, 3));
+        assertThrows(IllegalStateException.class, new Executable() {
+            @Override
+            public void execute() {
+                BayesTextClassifier.weightCount(1 << 24, 200);
+            }
+        });
+    }
+
+    @Test
+    void budgetWithoutTermsIsRejected() {
+        ClassStatistics statistics = new ClassStatistics();
+        statistics.addAllAndTransform(new TestCorpus(200, 3, 1).documents(new Vocabulary()));
+        final BayesTextClassifier classifier = new BayesTextClassifier(statistics);
+        final int labelCount = classifier.getLabels().length;
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                classifier.setMaxModelSize(8L * labelCount - 1);
+            }
+        });
+        classifier.setMaxModelSize(8L * labelCount);
+    }
+
+    @Test
+    void budgetBoundsTheRowsOfAllTermIds() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = new TestCorpus(400, 3, 1).documents(new Vocabulary());
+        trainer.calculateImprovedCounts(documents);
+        boolean enabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        try {
+            BayesTextClassifier all = trainer.train(documents);
+            Metrics.Snapshot metrics = Metrics.snapshot();
+            long wordCount = metrics.getGauge(Metrics.Gauge.MODEL_TERMS);
+            // the frequent words are removed, so there are less words than term ids
+            assertTrue(wordCount < metrics.getGauge(Metrics.Gauge.TERM_COUNT));
+            long budget = 8L * all.getLabels().length * wordCount;
+
+            BayesTextClassifier budgeted = trainer.train(documents, TrainingSettings.DEFAULT.withMaxModelSize(budget));
+
+            assertTrue(Metrics.snapshot().getGauge(Metrics.Gauge.MODEL_BYTES) <= budget);
+            // every word fits into the budget
+            assertArrayEquals(TestCorpus.scores(all, documents), TestCorpus.scores(budgeted, documents));
+        } finally {
+            Metrics.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    void settingsGiveTheWeightsOfTheSetters() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = new TestCorpus(400, 3, 1).documents(new Vocabulary());
+        trainer.calculateImprovedCounts(documents);
+        BayesTextClassifier expected = trainer.train(documents);
+        expected.setWordThreshold(.3);
+        expected.setMaxTermCount(100);
+
+        BayesTextClassifier actual = trainer.train(documents,
+                TrainingSettings.DEFAULT.withWordThreshold(.3).withMaxTermCount(100).withOffHeap(true));
+
+        assertNull(actual.getStatistics());
+        assertArrayEquals(TestCorpus.scores(expected, documents), TestCorpus.scores(actual, documents));
+    }
+}
@@ -0,0 +1,78 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassificationCacheTest {
+    @Test
+    void cachedResultsAreTheScoresOfTheClassifier() {
+        TestCorpus corpus = new TestCorpus(300, 3, 11);
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        Vocabulary vocabulary = new Vocabulary();
+        ArrayList<Document> documents = corpus.documents(vocabulary, 0, 200);
+        trainer.calculateImprovedCounts(documents);
+        BayesTextClassifier classifier = trainer.train(documents);
+        int words = vocabulary.size();
+
+        ClassificationCache cache = new ClassificationCache(classifier, Tokenizer.getDefault(), vocabulary, 50);
+        String[] labels = classifier.getLabels();
+        for (int round = 0; round < 2; round++) {
+            for (int k = 0; k < 100; k++) {
+                // the second round starts with the texts classified last
+                int j = round == 0 ? 200 + k : 299 - k;
+                String text = corpus.getTexts().get(j) + " unseenword" + j;
+                ClassificationCache.Result result = cache.classify(text);
+                double[] scores = new double[labels.length];
+                int c = classifier.score(new Document(text, null, LookupOnlyIndex.of(vocabulary)), scores);
+                assertEquals(labels[c], result.getLabel());
+                assertArrayEquals(scores, result.getScores());
+            }
+        }
+        // only the last 50 texts of the first round were kept
+        assertEquals(50, cache.size());
+        assertEquals(150, cache.getMisses());
+        assertEquals(50, cache.getHits());
+        assertEquals(words, vocabulary.size(), "words of the texts were added");
+    }
+
+    @Test
+    void changedClassifierClearsTheCache() {
+        TestCorpus corpus = new TestCorpus(300, 3, 12);
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        Vocabulary vocabulary = new Vocabulary();
+        ArrayList<Document> documents = corpus.documents(vocabulary, 0, 200);
+        trainer.calculateImprovedCounts(documents);
+        // all words are kept, so the text has weights before and after the update
+        BayesTextClassifier classifier = trainer.train(documents, TrainingSettings.DEFAULT.withWordThreshold(1));
+        ClassificationCache cache = new ClassificationCache(classifier, Tokenizer.getDefault(), vocabulary, 50);
+        String text = corpus.getTexts().get(250);
+        double[] before = cache.classify(text).getScores();
+        assertSame(cache.classify(text).getScores(), before);
+
+        classifier.updateAll(corpus.documents(vocabulary, 200, 300));
+        ClassificationCache.Result result = cache.classify(text);
+
+        String[] labels = classifier.getLabels();
+        double[] scores = new double[labels.length];
+        int c = classifier.score(new Document(text, null, LookupOnlyIndex.of(vocabulary)), scores);
+        assertFalse(Arrays.equals(before, result.getScores()));
+        assertArrayEquals(scores, result.getScores());
+        assertEquals(labels[c], result.getLabel());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void textsWithTheSameWordsShareTheirHash() {
+        long hash = ClassificationCache.hash("alpha beta");
+        assertEquals(hash, ClassificationCache.hash("  alpha   beta "));
+        assertEquals(hash, ClassificationCache.hash("\talpha \n beta\r\n"));
+        // a tab only separates words at the start or end of a part
+        assertNotEquals(hash, ClassificationCache.hash("alpha\tbeta"));
+    }
+}
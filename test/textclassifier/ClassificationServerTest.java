@@ -0,0 +1,68 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassificationServerTest {
+    @Test
+    void servedLabelsAreTheLocalLabels() throws IOException {
+        TestCorpus corpus = new TestCorpus(500, 4, 6);
+        Vocabulary vocabulary = new Vocabulary();
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = corpus.documents(vocabulary, 0, 400);
+        trainer.calculateImprovedCounts(documents);
+        BayesTextClassifier classifier = trainer.train(documents);
+        List<String> texts = corpus.getTexts().subList(400, 500);
+
+        String[] served;
+        String single;
+        int vocabularySize = vocabulary.size();
+        // small batches, so the texts are classified in several of them
+        try (ClassificationServer server = new ClassificationServer(classifier, Tokenizer.getDefault(), vocabulary, 0,
+                trainer.getPool(), 16);
+             ClassificationClient client = new ClassificationClient(server.getPort())) {
+            served = client.classifyAll(texts);
+            single = client.classify(texts.get(7));
+        }
+        // the server only looks the words of the texts up
+        assertEquals(vocabularySize, vocabulary.size());
+
+        // unknown words get ids without weights, so they don't change the labels
+        String[] expected = classifier.classifyAll(corpus.documents(vocabulary, 400, 500), null);
+        assertArrayEquals(expected, served);
+        assertEquals(expected[7], single);
+    }
+
+    @Test
+    void cachedLabelsAreTheLocalLabels() throws IOException {
+        TestCorpus corpus = new TestCorpus(500, 4, 7);
+        Vocabulary vocabulary = new Vocabulary();
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = corpus.documents(vocabulary, 0, 400);
+        trainer.calculateImprovedCounts(documents);
+        BayesTextClassifier classifier = trainer.train(documents);
+        List<String> texts = corpus.getTexts().subList(400, 500);
+
+        String[] first;
+        String[] second;
+        long hits;
+        try (ClassificationServer server = new ClassificationServer(classifier, Tokenizer.getDefault(), vocabulary, 0,
+                trainer.getPool(), 16, 200);
+             ClassificationClient client = new ClassificationClient(server.getPort())) {
+            first = client.classifyAll(texts);
+            second = client.classifyAll(texts);
+            hits = server.getCache().getHits();
+        }
+
+        String[] expected = classifier.classifyAll(corpus.documents(vocabulary, 400, 500), null);
+        assertArrayEquals(expected, first);
+        assertArrayEquals(expected, second);
+        // the second time every text was answered from the cache
+        assertTrue(hits >= texts.size(), "hits " + hits);
+    }
+}
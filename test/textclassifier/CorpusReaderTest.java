@@ -0,0 +1,54 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorpusReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void linesAreSplitLikeStringSplit() throws IOException {
+        List<String> lines = new ArrayList<>(Arrays.asList(
+                "sport\tthe match ended", "sport\t", "politics\tvote\t", "\tno label", "no tab",
+                "two\ttabs\there", "économie\tle marché\t\t", ""));
+        TestCorpus corpus = new TestCorpus(200, 3, 10);
+        for (int j = 0; j < corpus.size(); j++) {
+            lines.add(corpus.getLabels().get(j) + "\t" + corpus.getTexts().get(j));
+        }
+        Path file = this.directory.resolve("corpus.txt");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        List<String[]> expected = new ArrayList<>();
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            if (parts.length == 2) {
+                expected.add(parts);
+            }
+        }
+        // small chunks, so lines cross the chunk borders and chunks are parsed in parallel
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try (CorpusReader reader = new CorpusReader(file.toString(), true, Tokenizer.getDefault(), pool, 256)) {
+            int j = 0;
+            while (reader.hasNext()) {
+                CorpusReader.Record record = reader.next();
+                assertArrayEquals(expected.get(j++), new String[]{record.getLabel(), record.getText()});
+            }
+            assertEquals(expected.size(), j);
+            assertEquals(lines.size() - expected.size(), reader.getMalformedLines());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
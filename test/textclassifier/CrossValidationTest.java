@@ -0,0 +1,115 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossValidationTest {
+    private final TestCorpus corpus = new TestCorpus(300, 3, 4);
+
+    @Test
+    void subtractedStatisticsGiveTheWeightsOfTheRemainingDocuments() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        trainer.calculateImprovedCounts(documents);
+        ClassStatistics statistics = new ClassStatistics();
+        statistics.addAll(documents, null);
+
+        List<Document> fold = new ArrayList<>();
+        List<Document> remaining = new ArrayList<>();
+        for (int j = 0; j < documents.size(); j++) {
+            (j % 5 == 2 ? fold : remaining).add(documents.get(j));
+        }
+        BayesTextClassifier subtracted = new BayesTextClassifier(statistics.subtract(new ClassStatistics(fold)));
+        BayesTextClassifier trained = new BayesTextClassifier(new ClassStatistics(remaining));
+
+        // the labels may be in another order, the sums differ in the last bits
+        String[] labels = trained.getLabels();
+        List<String> subtractedLabels = Arrays.asList(subtracted.getLabels());
+        assertEquals(labels.length, subtractedLabels.size());
+        double[] expected = new double[labels.length];
+        double[] actual = new double[labels.length];
+        for (Document document : fold) {
+            trained.score(document, expected);
+            subtracted.score(document, actual);
+            for (int c = 0; c < labels.length; c++) {
+                double value = actual[subtractedLabels.indexOf(labels[c])];
+                assertFalse(Double.isNaN(value));
+                assertEquals(expected[c], value, 1e-9 * Math.max(1, Math.abs(expected[c])));
+            }
+        }
+    }
+
+    @Test
+    void resultOnlyDependsOnTheSeed() {
+        ParallelTrainer trainer = new ParallelTrainer(3);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        TrainingSettings settings = TrainingSettings.DEFAULT.withMaxTermCount(150);
+        CrossValidation.Result first = new CrossValidation(trainer, settings, 5, 7).evaluate(documents);
+        CrossValidation.Result second = new CrossValidation(new ParallelTrainer(1), settings, 5, 7).evaluate(documents);
+        assertEquals(5, first.getFoldCount());
+        for (int f = 0; f < first.getFoldCount(); f++) {
+            assertEquals(first.getAccuracy(f), second.getAccuracy(f));
+        }
+        // better than guessing one of the 3 labels
+        assertTrue(first.getMeanAccuracy() > .5, "mean accuracy " + first.getMeanAccuracy());
+    }
+
+    @Test
+    void everyFoldIsTrainedWithTheSettings() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        TrainingSettings settings = TrainingSettings.DEFAULT.withTransform(new Transform(true, false, true))
+                .withWordThreshold(.3).withMaxTermCount(100);
+        CrossValidation.Result result = new CrossValidation(trainer, settings, 4, 3).evaluate(documents);
+
+        // the folds as CrossValidation deals them
+        Integer[] order = new Integer[documents.size()];
+        for (int j = 0; j < order.length; j++) {
+            order[j] = j;
+        }
+        Collections.shuffle(Arrays.asList(order), new Random(3));
+        int[] foldOf = new int[documents.size()];
+        for (int j = 0; j < order.length; j++) {
+            foldOf[order[j]] = j % 4;
+        }
+        for (int f = 0; f < 4; f++) {
+            List<Document> fold = new ArrayList<>();
+            List<Document> remaining = new ArrayList<>();
+            for (int j = 0; j < documents.size(); j++) {
+                (foldOf[j] == f ? fold : remaining).add(documents.get(j));
+            }
+            BayesTextClassifier classifier = trainer.train(remaining, settings);
+            String[] labels = classifier.classifyAll(fold, null);
+            int correct = 0;
+            for (int j = 0; j < labels.length; j++) {
+                if (labels[j].equals(fold.get(j).getLabel())) {
+                    correct++;
+                }
+            }
+            assertEquals(correct * 1.0 / fold.size(), result.getAccuracy(f), "fold " + f);
+        }
+    }
+
+    @Test
+    void offHeapFoldsGiveTheHeapAccuracy() {
+        ParallelTrainer trainer = new ParallelTrainer(3);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        TrainingSettings settings = TrainingSettings.DEFAULT.withMaxTermCount(150);
+        CrossValidation.Result heap = new CrossValidation(trainer, settings, 5, 7).evaluate(documents);
+        CrossValidation.Result offHeap = new CrossValidation(trainer, settings.withOffHeap(true), 5, 7).evaluate(documents);
+        for (int f = 0; f < heap.getFoldCount(); f++) {
+            assertEquals(heap.getAccuracy(f), offHeap.getAccuracy(f));
+        }
+    }
+
+    @Test
+    void directMemoryLimitIsTheOptionOrTheHeap() {
+        assertEquals(64L << 20, CrossValidation.maxDirectMemory(Arrays.asList("-Xmx1g", "-XX:MaxDirectMemorySize=64m"), 1L << 30));
+        assertEquals(4096, CrossValidation.maxDirectMemory(Collections.singletonList("-XX:MaxDirectMemorySize=4096"), 1L << 30));
+        assertEquals(1L << 30, CrossValidation.maxDirectMemory(Collections.singletonList("-Xmx1g"), 1L << 30));
+        assertEquals(1L << 30, CrossValidation.maxDirectMemory(Collections.singletonList("-XX:MaxDirectMemorySize=0"), 1L << 30));
+    }
+}
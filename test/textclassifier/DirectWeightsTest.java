@@ -0,0 +1,42 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectWeightsTest {
+    @Test
+    void rowsAreNotSplitOverSegments() {
+        int labelCount = 3;
+        // 5 rows of 24 bytes per segment, the last segment only has 2
+        DirectWeights weights = DirectWeights.allocate(17, labelCount, 5 * 24 + 10);
+        for (int r = 0; r < 17; r++) {
+            for (int c = 0; c < labelCount; c++) {
+                weights.set(r, c, r * 10 + c);
+            }
+        }
+        for (int r = 0; r < 17; r++) {
+            assertSame(weights.segment(r / 5 * 5), weights.segment(r));
+            assertEquals((r % 5) * labelCount * 8, weights.position(r));
+            assertTrue(weights.position(r) + labelCount * 8 <= weights.segment(r).capacity());
+            for (int c = 0; c < labelCount; c++) {
+                assertEquals(r * 10 + c, weights.get(r, c));
+            }
+        }
+        assertNotSame(weights.segment(14), weights.segment(15));
+        assertEquals(2 * labelCount * 8, weights.segment(16).capacity());
+        assertEquals(17, weights.getRows());
+        assertEquals(17L * labelCount * 8, weights.getBytes());
+    }
+
+    @Test
+    void rowLargerThanASegmentIsRejected() {
+        assertThrows(IllegalStateException.class, new Executable() {
+            @Override
+            public void execute() {
+                DirectWeights.allocate(1, 4, 31);
+            }
+        });
+    }
+}
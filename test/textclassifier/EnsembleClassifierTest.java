@@ -0,0 +1,43 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleClassifierTest {
+    private final TestCorpus corpus = new TestCorpus(300, 3, 12);
+
+    @Test
+    void singleMemberVotesForItsLabel() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        trainer.calculateImprovedCounts(documents);
+        for (EnsembleClassifier.Voting voting : EnsembleClassifier.Voting.values()) {
+            EnsembleClassifier ensemble = new EnsembleClassifier(documents, 1, 5, voting, trainer.getPool());
+            BayesTextClassifier member = ensemble.getMembers()[0];
+            assertArrayEquals(member.classifyAll(documents, null), ensemble.classifyAll(documents, trainer.getPool()), voting.name());
+        }
+    }
+
+    @Test
+    void membersAreTrainedWithTheSettings() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        TrainingSettings settings = TrainingSettings.DEFAULT.withTransform(new Transform(true, false, true));
+        trainer.calculateImprovedCounts(documents, settings.getTransform());
+        // the same seed draws the same samples
+        BayesTextClassifier[] expected = new EnsembleClassifier(documents, settings, 3, 5,
+                EnsembleClassifier.Voting.MAJORITY, null).getMembers();
+        BayesTextClassifier[] actual = new EnsembleClassifier(documents,
+                settings.withWordThreshold(.3).withMaxTermCount(100).withOffHeap(true), 3, 5,
+                EnsembleClassifier.Voting.MAJORITY, trainer.getPool()).getMembers();
+        for (int m = 0; m < expected.length; m++) {
+            expected[m].setWordThreshold(.3);
+            expected[m].setMaxTermCount(100);
+            assertArrayEquals(TestCorpus.scores(expected[m], documents), TestCorpus.scores(actual[m], documents));
+            assertNull(actual[m].getStatistics());
+        }
+    }
+}
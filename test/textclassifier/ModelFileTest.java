@@ -0,0 +1,109 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelFileTest {
+    private final TestCorpus corpus = new TestCorpus(300, 4, 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadedVocabularyModelScoresLikeTheSavedOne() throws IOException {
+        this.assertRoundTrip(new Vocabulary(), new Vocabulary(), 1, 0, false);
+    }
+
+    @Test
+    void loadedOffHeapVocabularyModelScoresLikeTheSavedOne() throws IOException {
+        this.assertRoundTrip(new OffHeapVocabulary(), new OffHeapVocabulary(), 1, 0, true);
+    }
+
+    @Test
+    void loadedHashedModelScoresLikeTheSavedOne() throws IOException {
+        this.assertRoundTrip(new HashedTermIndex(512), new HashedTermIndex(512), 1, 0, false);
+    }
+
+    @Test
+    void loadedPrunedNGramModelScoresLikeTheSavedOne() throws IOException {
+        this.assertRoundTrip(new Vocabulary(), new Vocabulary(), 3, 200, false);
+        this.assertRoundTrip(new OffHeapVocabulary(), new OffHeapVocabulary(), 3, 200, false);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        ParallelTrainer trainer = new ParallelTrainer(1);
+        Vocabulary vocabulary = new Vocabulary();
+        ArrayList<Document> documents = this.corpus.documents(vocabulary);
+        trainer.calculateImprovedCounts(documents);
+        final Path model = Files.createTempFile(this.directory, "model", ".bin");
+        trainer.train(documents).save(model.toString(), vocabulary);
+        byte[] bytes = Files.readAllBytes(model);
+        Files.write(model, Arrays.copyOf(bytes, bytes.length - 8));
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws IOException {
+                BayesTextClassifier.load(model.toString(), new Vocabulary());
+            }
+        });
+    }
+
+    @Test
+    void cutOffHeaderAndWordsAreRejected() throws IOException {
+        ParallelTrainer trainer = new ParallelTrainer(1);
+        Vocabulary vocabulary = new Vocabulary();
+        ArrayList<Document> documents = this.corpus.documents(vocabulary);
+        trainer.calculateImprovedCounts(documents);
+        final Path model = Files.createTempFile(this.directory, "model", ".bin");
+        trainer.train(documents).save(model.toString(), vocabulary);
+        byte[] bytes = Files.readAllBytes(model);
+        // within the 20 byte header, within the labels and within the words
+        for (int length : new int[] {16, 26, 200}) {
+            Files.write(model, Arrays.copyOf(bytes, length));
+            IOException e = assertThrows(IOException.class, new Executable() {
+                @Override
+                public void execute() throws IOException {
+                    BayesTextClassifier.load(model.toString(), new Vocabulary());
+                }
+            });
+            assertTrue(e.getMessage().contains("is no model file"), e.getMessage());
+        }
+        // the length of the first label is negative
+        bytes[20] = (byte) 0xff;
+        bytes[23] = (byte) 0xff;
+        Files.write(model, bytes);
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws IOException {
+                BayesTextClassifier.load(model.toString(), new Vocabulary());
+            }
+        });
+    }
+
+    private void assertRoundTrip(TermIndex termIndex, TermIndex loadedIndex, int ngramLength,
+                                 int maxTermCount, boolean offHeap) throws IOException {
+        ParallelTrainer trainer = new ParallelTrainer(2, Tokenizer.getDefault().withNGramLength(ngramLength));
+        ArrayList<Document> documents = trainer.createDocuments(this.corpus.getTexts(), this.corpus.getLabels(), termIndex);
+        trainer.calculateImprovedCounts(documents);
+        BayesTextClassifier classifier = trainer.train(documents);
+        classifier.setMaxTermCount(maxTermCount);
+        classifier.setOffHeap(offHeap);
+        Path model = Files.createTempFile(this.directory, "model", ".bin");
+        classifier.save(model.toString(), termIndex);
+
+        BayesTextClassifier loaded = BayesTextClassifier.load(model.toString(), loadedIndex);
+        ArrayList<Document> loadedDocuments = trainer.createDocuments(this.corpus.getTexts(), this.corpus.getLabels(), loadedIndex);
+        assertArrayEquals(classifier.getLabels(), loaded.getLabels());
+        assertArrayEquals(TestCorpus.scores(classifier, documents), TestCorpus.scores(loaded, loadedDocuments));
+        assertNull(loaded.getStatistics());
+    }
+}
@@ -0,0 +1,80 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NGramsTest {
+    @Test
+    void rolledKeysAreTheKeysOfTheNGrams() {
+        Random random = new Random(8);
+        int[] wordIds = new int[50];
+        for (int k = 0; k < wordIds.length; k++) {
+            wordIds[k] = random.nextInt(20);
+        }
+        for (int n = 2; n <= 4; n++) {
+            long[] keys = rolledKeys(wordIds, n);
+            assertEquals(wordIds.length - n + 1, keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(NGrams.key(wordIds, i, n), keys[i], "n-gram " + i + " of " + n);
+            }
+        }
+    }
+
+    @Test
+    void wordsOfNGramsGiveTheirIds() {
+        TestCorpus corpus = new TestCorpus(100, 3, 9);
+        for (WordIndex index : new WordIndex[]{new Vocabulary(), new OffHeapVocabulary()}) {
+            ParallelTrainer trainer = new ParallelTrainer(1, Tokenizer.getDefault().withNGramLength(3));
+            ArrayList<Document> documents = trainer.createDocuments(corpus.getTexts(), corpus.getLabels(), index);
+            assertFalse(documents.isEmpty());
+            int ngrams = 0;
+            for (int id = 0; id < index.size(); id++) {
+                String word = index.getWord(id);
+                if (NGrams.isNGram(word, 0, word.length())) {
+                    ngrams++;
+                    assertEquals(id, NGrams.getId(index, word, 0, word.length(), false), word);
+                } else {
+                    assertEquals(id, index.lookup(word, 0, word.length()), word);
+                }
+            }
+            assertTrue(ngrams > 0);
+        }
+    }
+
+    /**
+     * Gets the keys addIds passes to the term index, in their order
+     */
+    private static long[] rolledKeys(final int[] wordIds, final int n) {
+        final long[] keys = new long[wordIds.length];
+        int[] ids = new int[wordIds.length];
+        int end = NGrams.addIds(wordIds, wordIds.length, n, new TermIndex() {
+            private int next;
+
+            @Override
+            public int getId(String text, int start, int end) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int getId(long key, int[] words, int from, int length) {
+                assertEquals(n, length);
+                keys[this.next] = key;
+                return this.next++;
+            }
+
+            @Override
+            public int size() {
+                return this.next;
+            }
+        }, ids, 0);
+        for (int i = 0; i < end; i++) {
+            assertEquals(i, ids[i]);
+        }
+        return Arrays.copyOf(keys, end);
+    }
+}
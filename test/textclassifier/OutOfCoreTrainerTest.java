@@ -0,0 +1,164 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutOfCoreTrainerTest {
+    private final TestCorpus corpus = new TestCorpus(400, 3, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sumsFittingIntoTheBufferGiveTheInMemoryWeights() throws IOException {
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        BayesTextClassifier outOfCore = new OutOfCoreTrainer(64 << 20, this.directory, null).train(source(documents));
+        BayesTextClassifier inMemory = this.trainInMemory(documents);
+
+        assertArrayEquals(inMemory.getLabels(), outOfCore.getLabels());
+        assertArrayEquals(TestCorpus.scores(inMemory, documents), TestCorpus.scores(outOfCore, documents));
+    }
+
+    @Test
+    void spilledRunsGiveTheInMemoryWeights() throws IOException {
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        // a few sums per run, so there are more runs than MAX_FAN_IN and the merge takes several passes
+        BayesTextClassifier outOfCore = new OutOfCoreTrainer(1024, this.directory, null).train(source(documents));
+        BayesTextClassifier inMemory = this.trainInMemory(documents);
+
+        assertArrayEquals(inMemory.getLabels(), outOfCore.getLabels());
+        double[] expected = TestCorpus.scores(inMemory, documents);
+        double[] actual = TestCorpus.scores(outOfCore, documents);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])));
+        }
+        File[] left = this.directory.toFile().listFiles();
+        assertEquals(0, left.length, "runs left behind");
+    }
+
+    @Test
+    void settingsAreApplied() throws IOException {
+        ArrayList<Document> documents = this.corpus.documents(new Vocabulary());
+        TrainingSettings settings = TrainingSettings.DEFAULT.withTransform(new Transform(true, false, true))
+                .withMaxTermCount(100).withOffHeap(true);
+        BayesTextClassifier outOfCore = new OutOfCoreTrainer(64 << 20, this.directory, settings, null).train(source(documents));
+
+        ParallelTrainer trainer = new ParallelTrainer(1);
+        trainer.calculateImprovedCounts(documents, settings.getTransform());
+        BayesTextClassifier inMemory = trainer.train(documents, settings);
+
+        assertNull(outOfCore.getStatistics());
+        assertArrayEquals(TestCorpus.scores(inMemory, documents), TestCorpus.scores(outOfCore, documents));
+    }
+
+    @Test
+    void sumsLargerThanTheHeapAreTrained() throws IOException, InterruptedException {
+        // the sums of all terms and labels would take 64 * 100000 * 8 bytes = 51 MB
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx32m", "-Dmetrics=true", "-cp", System.getProperty("java.class.path"),
+                LargeCorpus.class.getName(), this.directory.toString())
+                .redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(output);
+        }
+        String result = output.toString(StandardCharsets.UTF_8).trim();
+        assertEquals(0, process.waitFor(), result);
+        String[] values = result.split(" ");
+        assertEquals(3, values.length, result);
+        assertTrue(Long.parseLong(values[0]) > 90000, "term count " + values[0]);
+        assertTrue(Long.parseLong(values[1]) > 1, "runs " + values[1]);
+        assertTrue(Double.parseDouble(values[2]) > .5, "accuracy " + values[2]);
+        assertEquals(0, this.directory.toFile().listFiles().length, "runs left behind");
+    }
+
+    /**
+     * Trains a pruned classifier with 64 labels and 100000 hashed terms,
+     * run in a JVM whose heap can't hold the sums of all of them. Prints
+     * the term count, the number of runs and the accuracy on new documents.
+     */
+    static final class LargeCorpus {
+        private static final int LABELS = 64;
+
+        public static void main(String[] args) throws IOException {
+            final HashedTermIndex termIndex = new HashedTermIndex(100000);
+            OutOfCoreTrainer trainer = new OutOfCoreTrainer(1 << 20, Paths.get(args[0]),
+                    TrainingSettings.DEFAULT.withWordThreshold(1).withMaxTermCount(2000), null);
+            BayesTextClassifier classifier = trainer.train(new OutOfCoreTrainer.Source() {
+                @Override
+                public void forEach(Consumer<Document> consumer) {
+                    Random random = new Random(1);
+                    for (int j = 0; j < 4000; j++) {
+                        consumer.accept(document(random, termIndex));
+                    }
+                }
+            });
+            Metrics.Snapshot metrics = Metrics.snapshot();
+
+            Random random = new Random(2);
+            int correct = 0;
+            for (int j = 0; j < 500; j++) {
+                Document document = document(random, termIndex);
+                if (classifier.classify(document).equals(document.getLabel())) {
+                    correct++;
+                }
+            }
+            System.out.println(metrics.getGauge(Metrics.Gauge.TERM_COUNT) + " " + metrics.getCounter(Metrics.Counter.SPILLED_RUNS)
+                    + " " + correct / 500.);
+        }
+
+        /**
+         * A document of a random label: topic words of the label and
+         * words drawn from all hash buckets
+         */
+        private static Document document(Random random, TermIndex termIndex) {
+            int label = random.nextInt(LABELS);
+            StringBuilder text = new StringBuilder();
+            for (int k = 0; k < 40; k++) {
+                text.append(k % 5 < 3 ? word("topic" + word("", label), random.nextInt(20)) : word("common", random.nextInt(400000)));
+                text.append(' ');
+            }
+            return new Document(text.toString(), word("label", label), termIndex);
+        }
+
+        private static String word(String prefix, int k) {
+            StringBuilder word = new StringBuilder(prefix);
+            do {
+                word.append((char) ('a' + k % 26));
+                k /= 26;
+            } while (k > 0);
+            return word.toString();
+        }
+    }
+
+    private BayesTextClassifier trainInMemory(List<Document> documents) {
+        ParallelTrainer trainer = new ParallelTrainer(1);
+        trainer.calculateImprovedCounts(documents);
+        return trainer.train(documents);
+    }
+
+    private static OutOfCoreTrainer.Source source(final List<Document> documents) {
+        return new OutOfCoreTrainer.Source() {
+            @Override
+            public void forEach(Consumer<Document> consumer) {
+                for (Document document : documents) {
+                    consumer.accept(document);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTrainerTest {
+    private final TestCorpus corpus = new TestCorpus(400, 3, 1);
+
+    @Test
+    void parallelTrainingGivesTheSequentialWeights() {
+        ArrayList<Document> sequentialDocuments = this.corpus.documents(new Vocabulary());
+        ClassStatistics statistics = new ClassStatistics();
+        statistics.addAllAndTransform(sequentialDocuments);
+        BayesTextClassifier sequential = new BayesTextClassifier(statistics);
+
+        ParallelTrainer trainer = new ParallelTrainer(4);
+        ArrayList<Document> parallelDocuments = trainer.createDocuments(this.corpus.getTexts(), this.corpus.getLabels(), new Vocabulary());
+        trainer.calculateImprovedCounts(parallelDocuments);
+        BayesTextClassifier parallel = trainer.train(parallelDocuments);
+
+        assertArrayEquals(sequential.getLabels(), parallel.getLabels());
+        assertArrayEquals(TestCorpus.scores(sequential, sequentialDocuments), TestCorpus.scores(parallel, parallelDocuments));
+    }
+}
@@ -0,0 +1,103 @@
+package textclassifier;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * A small synthetic corpus: every label has its own topic words,
+ * all labels share common words. The texts only depend on the
+ * number of documents and labels and the seed.
+ */
+final class TestCorpus {
+    private final List<String> texts = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+
+    TestCorpus(int documents, int labelCount, long seed) {
+        Random random = new Random(seed);
+        for (int j = 0; j < documents; j++) {
+            String label = word("label", random.nextInt(labelCount));
+            int words = 20 + random.nextInt(40);
+            StringBuilder text = new StringBuilder();
+            for (int k = 0; k < words; k++) {
+                if (k > 0) {
+                    text.append(random.nextInt(8) == 0 ? "  " : " ");
+                }
+                if (random.nextInt(5) < 3) {
+                    text.append(word(label, zipf(random, 80)));
+                } else {
+                    text.append(word("common", zipf(random, 120)));
+                }
+                if (random.nextInt(10) == 0) {
+                    // numbers and stop words are left out by the tokenizer
+                    text.append(random.nextBoolean() ? " 1984" : " the");
+                }
+            }
+            this.texts.add(text.toString());
+            this.labels.add(label);
+        }
+    }
+
+    /**
+     * Draws one of n words, word k about 1 / (k + 1) times as often as
+     * word 0, so only a few words are above the word threshold
+     */
+    private static int zipf(Random random, int n) {
+        return Math.min(n - 1, (int) Math.pow(n + 1, random.nextDouble()) - 1);
+    }
+
+    private static String word(String prefix, int k) {
+        StringBuilder word = new StringBuilder(prefix);
+        do {
+            word.append((char) ('a' + k % 26));
+            k /= 26;
+        } while (k > 0);
+        return word.toString();
+    }
+
+    List<String> getTexts() {
+        return this.texts;
+    }
+
+    List<String> getLabels() {
+        return this.labels;
+    }
+
+    int size() {
+        return this.texts.size();
+    }
+
+    /**
+     * Creates the documents one by one in the calling thread
+     */
+    ArrayList<Document> documents(TermIndex termIndex) {
+        return this.documents(termIndex, 0, this.size());
+    }
+
+    ArrayList<Document> documents(TermIndex termIndex, int from, int to) {
+        ArrayList<Document> documents = new ArrayList<>();
+        for (int j = from; j < to; j++) {
+            documents.add(new Document(this.texts.get(j), this.labels.get(j), termIndex));
+        }
+        return documents;
+    }
+
+    /**
+     * Scores all documents and returns the scores one document after
+     * another. Fails if a score isn't a number, so comparing scores
+     * can't pass with weights of words which are all removed.
+     */
+    static double[] scores(BayesTextClassifier classifier, List<Document> documents) {
+        int labelCount = classifier.getLabels().length;
+        double[] scores = new double[documents.size() * labelCount];
+        double[] buffer = new double[labelCount];
+        for (int j = 0; j < documents.size(); j++) {
+            classifier.score(documents.get(j), buffer);
+            for (double score : buffer) {
+                assertFalse(Double.isNaN(score), "score of document " + j);
+            }
+            System.arraycopy(buffer, 0, scores, j * labelCount, labelCount);
+        }
+        return scores;
+    }
+}
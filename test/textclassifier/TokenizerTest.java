@@ -0,0 +1,49 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerTest {
+    @Test
+    void wordsAreSeparatedBySpacesOnly() {
+        String text = "alpha\tbeta  gamma\n 1984 \tdelta\r\n the \u0001 epsilon";
+        assertEquals(Arrays.asList("alpha\tbeta", "gamma", "delta", "epsilon"), words(Tokenizer.getDefault(), text));
+    }
+
+    @Test
+    void wordsAreTheTrimmedPartsOfSplit() {
+        Tokenizer tokenizer = Tokenizer.getDefault();
+        String[] pieces = {"alpha", "beta", "the", "42", "x1", " ", "  ", "\t", "\n", "\r\n", "\u0000", ""};
+        Random random = new Random(5);
+        for (int n = 0; n < 1000; n++) {
+            StringBuilder text = new StringBuilder();
+            for (int k = random.nextInt(12); k > 0; k--) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            // the splitting of the text before the Tokenizer
+            List<String> expected = new ArrayList<>();
+            for (String part : text.toString().split(" ")) {
+                String word = part.trim();
+                if (!word.isEmpty() && !word.matches("[0-9]+") && !tokenizer.isStopword(word)) {
+                    expected.add(word);
+                }
+            }
+            assertEquals(expected, words(tokenizer, text.toString()), text.toString());
+        }
+    }
+
+    private static List<String> words(Tokenizer tokenizer, String text) {
+        int[] tokens = tokenizer.tokenize(text);
+        List<String> words = new ArrayList<>();
+        for (int k = 0; k < tokens.length; k += 2) {
+            words.add(text.substring(tokens[k], tokens[k + 1]));
+        }
+        return words;
+    }
+}
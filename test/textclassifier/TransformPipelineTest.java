@@ -0,0 +1,34 @@
+package textclassifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformPipelineTest {
+    private final TestCorpus corpus = new TestCorpus(300, 4, 6);
+
+    @Test
+    void everyTransformGivesTheWeightsOfTheTrainer() {
+        ParallelTrainer trainer = new ParallelTrainer(2);
+        Vocabulary vocabulary = new Vocabulary();
+        TransformPipeline pipeline = new TransformPipeline(trainer, this.corpus.getTexts(), this.corpus.getLabels(), vocabulary);
+        // one stage after another is switched, so cached stages are reused
+        for (int bits = 7; bits >= 0; bits--) {
+            Transform transform = new Transform((bits & 4) != 0, (bits & 2) != 0, (bits & 1) != 0);
+            pipeline.setTransform(transform);
+            for (double wordThreshold : new double[]{.1, .3}) {
+                pipeline.setWordThreshold(wordThreshold);
+                ArrayList<Document> documents = this.corpus.documents(vocabulary);
+                trainer.calculateImprovedCounts(documents, transform);
+                BayesTextClassifier expected = trainer.train(documents, transform);
+                expected.setWordThreshold(wordThreshold);
+                BayesTextClassifier actual = pipeline.getClassifier();
+                assertArrayEquals(expected.getLabels(), actual.getLabels());
+                assertArrayEquals(TestCorpus.scores(expected, documents), TestCorpus.scores(actual, documents),
+                        transform + " " + wordThreshold);
+            }
+        }
+    }
+}